@@ -1,14 +1,72 @@
 package app.container;
 
-import app.util.exception.RequestFailure;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.Observable;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public abstract class AvailabilityContainer {
-    private final ObservableList<AvailabilityWatcher> watchers = FXCollections.observableArrayList();
+    public static final Duration DEFAULT_SAMPLE_INTERVAL = Duration.ofMinutes(5);
+
+    // the extractor turns a change of a watcher's counts into an update of the list, so derived views keep up with it
+    private final ObservableList<AvailabilityWatcher>     watchers     = FXCollections.observableArrayList(
+            watcher -> new Observable[]{watcher.formattedAmountProperty()});
+    private final Map<String, AvailabilityWatcher>        watcherIndex = new HashMap<>();
+    private final NameSearchIndex                         searchIndex  = new NameSearchIndex();
+    private final ListChangeListener<AvailabilityWatcher> watcherListChangeListener_updateIndex;
+    private final ChangeListener<String>                  watcherChangeListener_markDirty;
+
+    // shared views derived from the watchers list, made the first time they are asked for
+    private final Map<WatcherView, ObservableList<AvailabilityWatcher>> views = new EnumMap<>(WatcherView.class);
+
+    // name -> subscriptions to changes of that name, in the order they were made
+    private final Map<String, List<NameSubscription>> subscribers = new HashMap<>();
+
+    // copy-on-write publication of the watchers' counts for readers outside of the FX thread
+    private volatile AvailabilitySnapshot published;
+    private          long                 version;        // bumped on every change, only written on the FX thread
+    private          boolean              publishPending; // if a publish is already queued for the current batch
+
+    // periodic sampling of every watcher's utilization history
+    private final Timeline            sampler;
+    private final ReadOnlyLongWrapper sampleCount = new ReadOnlyLongWrapper(this, "sampleCount", 0);
+
+    /**
+     * Constructs the container and applies the listener that keeps the name index in sync with the watchers list.
+     */
+    protected AvailabilityContainer() {
+        this.published = AvailabilitySnapshot.of(watchers, 0);
+        this.watcherChangeListener_markDirty = this::handleChangeEvent_MarkDirty;
+        this.watcherListChangeListener_updateIndex = this::handleListChangeEvent_UpdateIndex;
+        this.watchers.addListener(watcherListChangeListener_updateIndex);
+        this.sampler = new Timeline();
+        this.sampler.setCycleCount(Timeline.INDEFINITE);
+        setSampleInterval(DEFAULT_SAMPLE_INTERVAL);
+    }
 
     /**
      * A helper method that checks if there is at least one requestable of the given name available. This is used
@@ -22,6 +80,33 @@ public abstract class AvailabilityContainer {
         return getWatcherByName(name).getCurrentAvailable() > 0;
     }
 
+    /**
+     * A helper method that checks if there are at least a number of requestables of the given name available.
+     *
+     * @param name
+     *         the string name of the requestable to check
+     * @param quantity
+     *         the number of requestables wanted
+     * @return true if at least `quantity` requestables are considered available
+     */
+    public boolean isAvailable(String name, int quantity) {
+        return getWatcherByName(name).getCurrentAvailable() >= quantity;
+    }
+
+    /**
+     * A helper method that checks if there are enough requestables available of each name supplied.
+     *
+     * @param quantities
+     *         the names of the requestables mapped to the number wanted of each
+     * @return true if every name has at least its quantity of requestables available. false otherwise.
+     */
+    public boolean isAvailable(Map<String, Integer> quantities) {
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            if (getWatcherByName(entry.getKey()).getCurrentAvailable() < entry.getValue()) return false;
+        }
+        return true;
+    }
+
     /**
      * A helper method that checks if there is at least one requestable of the name available for each name supplied.
      * This is used primarily in branch logic dealing with Request objects.
@@ -30,49 +115,87 @@ public abstract class AvailabilityContainer {
      * @return true if all names given have at least one requestable that is available. false otherwise.
      */
     public boolean isAvailable(List<String> names) {
-        return names.stream().allMatch(name -> getWatcherByName(name).getCurrentAvailable() > 0);
+        for (String name : names) {
+            if (getWatcherByName(name).getCurrentAvailable() <= 0) return false;
+        }
+        return true;
     }
 
     /**
-     * A helper method that *attempts* to set the availability property of a given requestable. Use this to easily and
-     * safely change a requestables's availability.
+     * Creates an immutable record of the current availability of the given names, made in a single pass over the
+     * name index. Use this when many names need to be checked together instead of calling {@link #isAvailable(String)}
+     * once per name.
      *
-     * @param name
-     *         the name of the requestable to change
-     * @param newAvailability
-     *         the boolean value to change availability to. (true means it's available)
-     * @throws RequestFailure
-     *         if change could not be made at this time
-     * @implNote this method delegates the change to a matching watcher instead of a requestable model.
+     * @param names
+     *         the names of the requestables to record. duplicates are recorded once.
+     * @return a snapshot of the availability of the names
+     *
+     * @throws NoSuchElementException
+     *         if a name doesn't have a watcher
      */
-    void requestSetAvail(String name, boolean newAvailability) throws RequestFailure {
-        try {
-            getWatcherByName(name).setAvailable(newAvailability);
-        } catch (NoSuchElementException e) {
-            throw new RequestFailure(e);
+    public AvailabilitySnapshot snapshot(Collection<String> names) throws NoSuchElementException {
+        List<AvailabilityWatcher> selected = new ArrayList<>(names.size());
+        for (String name : names) {
+            selected.add(getWatcherByName(name));
         }
+        return AvailabilitySnapshot.of(selected, version);
     }
 
     /**
-     * A helper method that *attempts* to set the availability property of a list of given requestable. Use this to
-     * easily and safely change a bunch of requestables' availability.
+     * Creates an immutable record of the current availability of every watcher in this container.
      *
-     * @param names
-     *         the name of the requestable to change
-     * @param newAvailability
-     *         the boolean value to change availability to. (true means it's available)
-     * @throws RequestFailure
-     *         if change could not be made at this time
-     * @implNote this method delegates the change to a matching watcher instead of a requestable model.
-     */
-    void requestSetAvail(java.util.List<String> names, boolean newAvailability) {
-        try {
-            for (String name : names) {
-                getWatcherByName(name).setAvailable(newAvailability);
-            }
-        } catch (NoSuchElementException e) {
-            throw new RequestFailure(e);
-        }
+     * @return a snapshot of the availability of all requestables
+     *
+     * @see #snapshot(Collection)
+     */
+    public AvailabilitySnapshot snapshot() {
+        return AvailabilitySnapshot.of(watchers, version);
+    }
+
+    /**
+     * Gets the latest published snapshot of every watcher in this container. A new snapshot is published once after
+     * each batch of availability changes made on the FX thread, and a published snapshot is never changed afterwards.
+     * <p>
+     * Unlike the rest of this container, this method is safe to call from any thread. It never blocks and never touches
+     * the watchers, so background work such as estimation or reporting can read it freely.
+     *
+     * @return the most recently published snapshot. its epoch increases with every publish.
+     *
+     * @see AvailabilitySnapshot#getEpoch()
+     */
+    public AvailabilitySnapshot getPublishedSnapshot() {
+        return published;
+    }
+
+    /**
+     * Adds a number of new, available units of a requestable, such as when inventory is restocked during the day.
+     *
+     * @param name
+     *         the name of the requestable
+     * @param count
+     *         the number of units to add
+     * @throws NoSuchElementException
+     *         if the watcher doesn't exist
+     */
+    public void addUnits(String name, int count) throws NoSuchElementException {
+        getWatcherByName(name).addUnits(count);
+    }
+
+    /**
+     * Removes a number of available units of a requestable, such as when inventory is taken out during the day. Units
+     * that are in use are never removed; they have to be checked in first.
+     *
+     * @param name
+     *         the name of the requestable
+     * @param count
+     *         the number of units to remove
+     * @return the number of units that were removed, which is less than `count` if not enough units were available
+     *
+     * @throws NoSuchElementException
+     *         if the watcher doesn't exist
+     */
+    public int removeUnits(String name, int count) throws NoSuchElementException {
+        return getWatcherByName(name).removeUnits(count);
     }
 
     /**
@@ -87,6 +210,26 @@ public abstract class AvailabilityContainer {
         return watchers;
     }
 
+    /**
+     * Gets a shared view of this container's watchers. Each view is made once and then kept up to date as watchers are
+     * added, removed or change their counts, moving only the watchers that changed. Every controller showing the same
+     * view gets the same list, so opening a view does not sort or filter the watchers again.
+     *
+     * @param view
+     *         the view to get
+     * @return an unmodifiable, live list of the watchers in the view
+     *
+     * @see WatcherView
+     */
+    public ObservableList<AvailabilityWatcher> getView(WatcherView view) {
+        ObservableList<AvailabilityWatcher> derived = views.get(view);
+        if (derived == null) {
+            derived = createView(view);
+            views.put(view, derived);
+        }
+        return derived;
+    }
+
     /**
      * A helper method for getting a specific watcher from this container's collection.
      *
@@ -96,11 +239,291 @@ public abstract class AvailabilityContainer {
      *
      * @throws NoSuchElementException
      *         if the watcher doesn't exist
+     * @implNote the lookup is done through a name index instead of searching the watchers list.
      */
     public AvailabilityWatcher getWatcherByName(String name) throws NoSuchElementException {
-        return watchers.stream()
-                       .filter(watcher -> watcher.getName().equals(name))
-                       .findFirst()
-                       .orElseThrow(NoSuchElementException::new);
+        AvailabilityWatcher watcher = watcherIndex.get(name);
+        if (watcher == null) throw new NoSuchElementException(name);
+        return watcher;
+    }
+
+    /**
+     * Searches the names of this container's watchers for a piece of text, for type-ahead lookups. The search goes
+     * through a trigram index of the names, so it does not scan every watcher.
+     *
+     * @param query
+     *         the text the name should contain, case-insensitive
+     * @param limit
+     *         the max number of results to return
+     * @return the matching watchers, with watchers that have an available unit ranked first
+     *
+     * @see #search(String, int, Predicate)
+     */
+    public List<AvailabilityWatcher> search(String query, int limit) {
+        return search(query, limit, watcher -> true);
+    }
+
+    /**
+     * Searches the names of this container's watchers for a piece of text, keeping only the watchers that pass a
+     * filter. The filter is applied before the matches are ranked, so only the results that will be shown are ranked.
+     * <p>
+     * A blank query matches every name. Its ranking is read straight off the shared views, available watchers first,
+     * so it stops as soon as enough watchers pass the filter.
+     *
+     * @param query
+     *         the text the name should contain, case-insensitive
+     * @param limit
+     *         the max number of results to return
+     * @param filter
+     *         only watchers that pass the filter are returned, such as equipment that can be used at a station
+     * @return the matching watchers, with watchers that have an available unit ranked first
+     */
+    public List<AvailabilityWatcher> search(String query, int limit, Predicate<? super AvailabilityWatcher> filter) {
+        if (!NameSearchIndex.isBlank(query)) return searchIndex.search(query, limit, filter);
+
+        List<AvailabilityWatcher> result = new ArrayList<>(Math.min(limit, watchers.size()));
+        for (AvailabilityWatcher watcher : getView(WatcherView.AVAILABLE)) {
+            if (result.size() >= limit) return result;
+            if (filter.test(watcher)) result.add(watcher);
+        }
+        for (AvailabilityWatcher watcher : getView(WatcherView.BY_NAME)) {
+            if (result.size() >= limit) return result;
+            if (watcher.getPublishedAvailable() <= 0 && filter.test(watcher)) result.add(watcher);
+        }
+        return result;
+    }
+
+    /**
+     * Subscribes to changes in the availability of a few names. The callback is only called for changes to the given
+     * names and never for changes elsewhere in the container. Like the watchers' formatted amounts, all changes made to
+     * a name within one FX pulse lead to a single call.
+     * <p>
+     * Subscribers of a name are called in the order they subscribed.
+     *
+     * @param names
+     *         the names of the requestables to watch
+     * @param callback
+     *         called with the watcher of a name whenever its counts change
+     * @return the subscription, which should be unsubscribed when the changes are no longer needed
+     *
+     * @throws NoSuchElementException
+     *         if a name doesn't have a watcher. nothing is subscribed when this is thrown.
+     */
+    public Subscription subscribe(Collection<String> names, Consumer<? super AvailabilityWatcher> callback)
+            throws NoSuchElementException {
+        Set<String> distinct = new LinkedHashSet<>(names);
+        for (String name : distinct) {
+            getWatcherByName(name);
+        }
+
+        NameSubscription subscription = new NameSubscription(distinct, callback);
+        for (String name : distinct) {
+            subscribers.computeIfAbsent(name, n -> new ArrayList<>()).add(subscription);
+        }
+        return subscription;
+    }
+
+    /**
+     * Changes how often the utilization history of every watcher is sampled. Each watcher keeps a fixed number of
+     * samples, so a longer interval covers a longer stretch of time.
+     *
+     * @param interval
+     *         the time between samples
+     * @throws IllegalArgumentException
+     *         if the interval is zero or negative
+     * @see AvailabilityWatcher#getUtilizationHistory()
+     */
+    public void setSampleInterval(Duration interval) throws IllegalArgumentException {
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Sample interval must be positive: " + interval);
+        }
+        sampler.stop();
+        sampler.getKeyFrames().setAll(new KeyFrame(javafx.util.Duration.millis(interval.toMillis()),
+                                                   event -> sampleUtilization()));
+        sampler.play();
+    }
+
+    /**
+     * A count of how many times the watchers have been sampled. Views showing utilization can listen to this property
+     * to know when to redraw.
+     *
+     * @return a read-only property of the number of samples taken
+     */
+    public ReadOnlyLongProperty sampleCountProperty() {
+        return sampleCount.getReadOnlyProperty();
+    }
+
+    /**
+     * The shared views of the watchers that {@link #getView(WatcherView)} provides.
+     */
+    public enum WatcherView {
+        /** every watcher, in name order */
+        BY_NAME,
+        /** every watcher, with the most available units first and ties in name order */
+        BY_AVAILABILITY,
+        /** the watchers with at least one available unit, in name order */
+        AVAILABLE
+    }
+
+    /**
+     * A handle of a subscription made through {@link #subscribe(Collection, Consumer)}.
+     */
+    public interface Subscription {
+        /**
+         * Stops the callback of the subscription from being called. Calling this more than once has no effect.
+         */
+        void unsubscribe();
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    static final Comparator<AvailabilityWatcher> NAME_ORDER =
+            Comparator.comparing(AvailabilityWatcher::getName, String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Makes a view of the watchers list. The name ordered view is the base of the filtered views so that they don't
+     * have to be sorted separately. Views order and filter by the published count of a watcher, not its current count,
+     * since the list is only told of a change once the count is published.
+     *
+     * @param view
+     *         the view to make
+     * @return the view, backed by the watchers list
+     */
+    private ObservableList<AvailabilityWatcher> createView(WatcherView view) {
+        switch (view) {
+            case BY_NAME:
+                return new SortedList<>(watchers, NAME_ORDER);
+            case BY_AVAILABILITY:
+                return new SortedList<>(watchers, Comparator.comparingInt(AvailabilityWatcher::getPublishedAvailable)
+                                                            .reversed()
+                                                            .thenComparing(NAME_ORDER));
+            case AVAILABLE:
+                return new FilteredList<>(getView(WatcherView.BY_NAME), watcher -> watcher.getPublishedAvailable() > 0);
+            default:
+                throw new IllegalArgumentException(String.valueOf(view));
+        }
+    }
+
+    /**
+     * A subscription to a set of names, listed under each of its names in the subscriber table.
+     */
+    private final class NameSubscription implements Subscription {
+        private final Set<String>                           names;
+        private final Consumer<? super AvailabilityWatcher> callback;
+        private       boolean                               active = true;
+
+        private NameSubscription(Set<String> names, Consumer<? super AvailabilityWatcher> callback) {
+            this.names = names;
+            this.callback = callback;
+        }
+
+        @Override
+        public void unsubscribe() {
+            if (!active) return;
+            active = false;
+            for (String name : names) {
+                List<NameSubscription> subscriptions = subscribers.get(name);
+                if (subscriptions != null && subscriptions.remove(this) && subscriptions.isEmpty()) {
+                    subscribers.remove(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls the subscribers of a watcher's name. A subscriber that is unsubscribed by an earlier callback of the same
+     * change is not called.
+     *
+     * @param watcher
+     *         the watcher whose counts changed
+     */
+    private void dispatch(AvailabilityWatcher watcher) {
+        List<NameSubscription> subscriptions = subscribers.get(watcher.getName());
+        if (subscriptions == null) return;
+        for (NameSubscription subscription : new ArrayList<>(subscriptions)) {
+            if (subscription.active) subscription.callback.accept(watcher);
+        }
+    }
+
+    /**
+     * Records the current counts of every watcher into its utilization history.
+     */
+    private void sampleUtilization() {
+        for (AvailabilityWatcher watcher : watchers) {
+            watcher.sampleUtilization();
+        }
+        sampleCount.set(sampleCount.get() + 1);
+    }
+
+    /**
+     * Handler method that implements the {@link ListChangeListener}'s functional interface. Used as and treated as a
+     * valid ListChangeListener.
+     * <p>
+     * This Listener is notified if the watchers list changed. Removed watchers are dropped from the name and search
+     * indexes and added watchers are put into them, so that the indexes always mirror the list. Updates of a watcher's
+     * counts are skipped, as those are handled by {@link #handleChangeEvent_MarkDirty}.
+     *
+     * @param change
+     *         the Change object that describes all the changes to the list since the last call.
+     */
+    private void handleListChangeEvent_UpdateIndex(ListChangeListener.Change<? extends AvailabilityWatcher> change) {
+        while (change.next()) {
+            if (change.wasPermutated() || change.wasUpdated()) continue;
+            for (AvailabilityWatcher removed : change.getRemoved()) {
+                watcherIndex.remove(removed.getName(), removed);
+                searchIndex.remove(removed);
+                removed.formattedAmountProperty().removeListener(watcherChangeListener_markDirty);
+            }
+            for (AvailabilityWatcher added : change.getAddedSubList()) {
+                watcherIndex.put(added.getName(), added);
+                searchIndex.add(added);
+                added.formattedAmountProperty().addListener(watcherChangeListener_markDirty);
+            }
+            markDirty();
+        }
+    }
+
+    /**
+     * handles the change event created by a watcher's formatted amount property, which changes whenever the counts of
+     * that watcher change. The change is passed on to the subscribers of the watcher's name.
+     *
+     * @param observableValue
+     *         the observable object (the formatted amount property object)
+     * @param oldValue
+     *         the old formatted amount
+     * @param newValue
+     *         the new formatted amount
+     */
+    private void handleChangeEvent_MarkDirty(ObservableValue<? extends String> observableValue,
+                                             String oldValue,
+                                             String newValue) {
+        markDirty();
+        dispatch((AvailabilityWatcher) ((ReadOnlyProperty<?>) observableValue).getBean());
+    }
+
+    /**
+     * Records that the watchers changed and queues a single publish for the current batch of changes, so a burst of
+     * changes within one FX pulse is copied into one snapshot instead of one per change. Changes made outside of the FX
+     * thread have no pulse to be coalesced into, so they are published right away.
+     * <p>
+     * Until the queued publish runs, the watchers' {@link AvailabilityWatcher#getCurrentAvailable()} counts are ahead
+     * of the published snapshot.
+     */
+    private void markDirty() {
+        version++;
+        if (!Platform.isFxApplicationThread()) {
+            publishSnapshot();
+        } else if (!publishPending) {
+            publishPending = true;
+            Platform.runLater(this::publishSnapshot);
+        }
+    }
+
+    /**
+     * Copies the counts of every watcher into a new snapshot and publishes it for other threads to read.
+     */
+    private void publishSnapshot() {
+        publishPending = false;
+        published = AvailabilitySnapshot.of(watchers, version);
     }
 }
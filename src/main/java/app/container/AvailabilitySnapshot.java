@@ -0,0 +1,149 @@
+package app.container;
+
+import java.util.*;
+
+/**
+ * An immutable record of how many units of each requestable were available, and how many there were in total, at a
+ * single point in time. A snapshot is created in one pass over the watchers of a container, so every value within it is
+ * consistent with every other value, and later changes to the watchers are not reflected in it.
+ * <p>
+ * Use a snapshot when many names need to be checked together, such as evaluating a whole waitlist, instead of asking
+ * the container once per name. Since a snapshot is immutable, it may also be read from any thread.
+ *
+ * @see AvailabilityContainer#snapshot()
+ * @see AvailabilityContainer#snapshot(Collection)
+ * @see AvailabilityContainer#getPublishedSnapshot()
+ */
+public final class AvailabilitySnapshot {
+    private final Map<String, Integer> available;
+    private final Map<String, Integer> total;
+    private final long                 epoch;
+
+    private AvailabilitySnapshot(Map<String, Integer> available, Map<String, Integer> total, long epoch) {
+        this.available = Collections.unmodifiableMap(available);
+        this.total = Collections.unmodifiableMap(total);
+        this.epoch = epoch;
+    }
+
+    /**
+     * Creates a snapshot of the current counts of the given watchers.
+     *
+     * @param watchers
+     *         the watchers to record
+     * @param epoch
+     *         the version of the container the counts were read at
+     * @return a snapshot of the watchers' counts
+     */
+    static AvailabilitySnapshot of(Collection<AvailabilityWatcher> watchers, long epoch) {
+        Map<String, Integer> available = new HashMap<>(watchers.size() * 2);
+        Map<String, Integer> total     = new HashMap<>(watchers.size() * 2);
+        for (AvailabilityWatcher watcher : watchers) {
+            available.put(watcher.getName(), watcher.getCurrentAvailable());
+            total.put(watcher.getName(), watcher.getTotalAmount());
+        }
+        return new AvailabilitySnapshot(available, total, epoch);
+    }
+
+    /* ****************************************** EXTERNAL API ***************************************************** */
+
+    /**
+     * The epoch is the version of the container that this snapshot was read at. It only ever increases, so of two
+     * snapshots of the same container, the one with the larger epoch is the more recent one.
+     *
+     * @return the version this snapshot reflects
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @param name
+     *         the name of the requestable
+     * @return the number of units that were available
+     *
+     * @throws NoSuchElementException
+     *         if the name was not part of this snapshot
+     */
+    public int getAvailable(String name) throws NoSuchElementException {
+        Integer amount = available.get(name);
+        if (amount == null) throw new NoSuchElementException(name);
+        return amount;
+    }
+
+    /**
+     * @param name
+     *         the name of the requestable
+     * @return the number of units there were in total
+     *
+     * @throws NoSuchElementException
+     *         if the name was not part of this snapshot
+     */
+    public int getTotal(String name) throws NoSuchElementException {
+        Integer amount = total.get(name);
+        if (amount == null) throw new NoSuchElementException(name);
+        return amount;
+    }
+
+    /**
+     * @param name
+     *         the name of the requestable
+     * @return true if at least one unit of the name was available
+     *
+     * @throws NoSuchElementException
+     *         if the name was not part of this snapshot
+     */
+    public boolean isAvailable(String name) throws NoSuchElementException {
+        return getAvailable(name) > 0;
+    }
+
+    /**
+     * Checks if every name could be given a unit at once. A name listed more than once needs that many units.
+     *
+     * @param names
+     *         the names of the requestables
+     * @return true if enough units were available for all names
+     *
+     * @throws NoSuchElementException
+     *         if a name was not part of this snapshot
+     */
+    public boolean isAvailable(Collection<String> names) throws NoSuchElementException {
+        if (names.size() == 1) return isAvailable(names.iterator().next());
+
+        Map<String, Integer> demand = new HashMap<>();
+        for (String name : names) {
+            if (demand.merge(name, 1, Integer::sum) > getAvailable(name)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if every name could be given its number of units at once.
+     *
+     * @param quantities
+     *         the names of the requestables mapped to the number of units wanted of each
+     * @return true if enough units were available for all names
+     *
+     * @throws NoSuchElementException
+     *         if a name was not part of this snapshot
+     */
+    public boolean isAvailable(Map<String, Integer> quantities) throws NoSuchElementException {
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            if (entry.getValue() > getAvailable(entry.getKey())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return an unmodifiable map of each recorded name to its number of available units
+     */
+    public Map<String, Integer> getAvailableMap() {
+        return available;
+    }
+
+    /**
+     * @return the names recorded in this snapshot
+     */
+    public Set<String> getNames() {
+        return available.keySet();
+    }
+}
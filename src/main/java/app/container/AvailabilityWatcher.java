@@ -2,14 +2,22 @@ package app.container;
 
 import app.model.Requestable;
 import app.util.io.InventoryConfigAccessor;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.beans.value.WeakChangeListener;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.function.Function;
 
 /**
  * This watcher class helps provide an API for interacting with requestable models with a matching name by treating all
@@ -17,26 +25,62 @@ import java.util.NoSuchElementException;
  * <p>
  * This class should be used to both interact with station models as well as display information about a station to the
  * view.
+ * <p>
+ * The state of each unit is kept in primitive arrays rather than in a requestable model per unit. A unit's requestable
+ * model (and its JavaFX properties) is only created when something asks for it, such as a view through
+ * {@link #getItems()}, and is kept in sync with the unit's state from then on.
+ * <p>
+ * Units can be added and removed while the application runs, such as during inventory edits. A model only holds a weak
+ * reference to this watcher's listener, and the listener is detached as soon as the model's unit is removed, so neither
+ * removed units nor discarded watchers are kept alive by the other.
  */
 public class AvailabilityWatcher {
-    private       ObservableList<Requestable> items;
-    private       StringProperty              name;
-    private       StringProperty              formattedAmount;
-    private final ChangeListener<Boolean>     availableChangeListener;
+    public static final int UTILIZATION_SAMPLES = 48; // e.g. four hours of samples at five minute intervals
+
+    private       StringProperty                  name;
+    private       StringProperty                  formattedAmount;
+    private final ChangeListener<Boolean>         availableChangeListener;
+    private final ChangeListener<Boolean>         weakAvailableChangeListener; // the one models hold, see #attachModel
+    private final ListChangeListener<Requestable> itemsListChangeListener_detachModels;
+    private final Function<String, Requestable>   unitFactory; // creates the model of a unit when one is asked for
+    private       int                             unitCount;
+    private       int                             slotCount; // live units plus the slots of removed units
+    private       int                             currentAvailable; // running count of available units
+    private       int                             publishedAvailable; // the count as of the last formatted amount
+    private       boolean                         formattedAmountDirty; // if an update is queued for the current pulse
+    private final UtilizationHistory              utilizationHistory;
+
+    /* free-list of units. `unitOrder` is a permutation of unit indices where the first `currentAvailable` entries are
+     * the available units, the entries up to `unitCount` are the unavailable units, and the rest up to `slotCount` are
+     * the slots of removed units, ready to be reused; `unitPosition` is its inverse. This pair is the whole state of
+     * the units, a unit is available when `unitPosition[unit] < currentAvailable`. Removed slots keep the indices of
+     * the other units stable, so a unit index that was handed out stays valid. */
+    private       int[]                           unitOrder;
+    private       int[]                           unitPosition;
+
+    // models of units, only made on demand. all null until the first one is made.
+    private       Requestable[]                   unitModels;
+    private       Map<Requestable, Integer>       unitIndex;
+    private       ObservableList<Requestable>     items;
 
     /**
      * Constructs a new watcher for items sharing the same name.
      *
      * @param name
      *         the name of the station. should be supplied using the name property.
-     * @throws IllegalArgumentException
-     *         if a station in `items` has a mismatching station name to the watcher
+     * @param unitFactory
+     *         creates the requestable model of a unit from the name. may be null if every unit is added as a model.
      */
-    private AvailabilityWatcher(String name) throws IllegalArgumentException {
-        this.items = FXCollections.observableArrayList();
+    private AvailabilityWatcher(String name, Function<String, Requestable> unitFactory) {
+        this.unitFactory = unitFactory;
+        this.utilizationHistory = new UtilizationHistory(UTILIZATION_SAMPLES);
+        this.unitOrder = new int[0];
+        this.unitPosition = new int[0];
         this.name = new SimpleStringProperty(this, "name", name);
         this.formattedAmount = new SimpleStringProperty(this, "formattedAmount", createFormattedAmount());
         this.availableChangeListener = this::handleAvailableChangeEvent_UpdateFormattedAmount;
+        this.weakAvailableChangeListener = new WeakChangeListener<>(availableChangeListener);
+        this.itemsListChangeListener_detachModels = this::handleListChangeEvent_DetachModels;
     }
 
     /**
@@ -48,7 +92,25 @@ public class AvailabilityWatcher {
      * @return a station watcher object.
      */
     static AvailabilityWatcher initWatcher(String name) {
-        return new AvailabilityWatcher(name);
+        return new AvailabilityWatcher(name, null);
+    }
+
+    /**
+     * Initializer method for creating a new watcher of a given amount of units, all available. No requestable models
+     * are created until they are asked for.
+     *
+     * @param name
+     *         the name of the requestable.
+     * @param total
+     *         the number of units the watcher starts with.
+     * @param unitFactory
+     *         creates the requestable model of a unit from the name.
+     * @return a watcher object.
+     */
+    static AvailabilityWatcher initWatcher(String name, int total, Function<String, Requestable> unitFactory) {
+        AvailabilityWatcher watcher = new AvailabilityWatcher(name, unitFactory);
+        watcher.addUnits(total);
+        return watcher;
     }
 
 
@@ -60,15 +122,100 @@ public class AvailabilityWatcher {
      *
      * @param availability
      *         the availability value to change the station's property to
+     * @return the unit index of the item that was flipped
+     *
      * @throws NoSuchElementException
      *         if all items in the pool have the same availability as the one supplied
+     * @see #claimUnit()
+     * @see #releaseUnit(int)
      */
-    void setAvailable(boolean availability) throws NoSuchElementException {
-        items.stream()
-             .filter(station -> station.isAvailable() != availability)
-             .findFirst()
-             .orElseThrow(NoSuchElementException::new)
-             .setAvailable(availability);
+    int setAvailable(boolean availability) throws NoSuchElementException {
+        if (!availability) return claimUnit();
+        if (currentAvailable >= unitCount) throw new NoSuchElementException(getName());
+        int unit = unitOrder[currentAvailable];
+        releaseUnit(unit);
+        return unit;
+    }
+
+    /**
+     * Takes a single available unit out of the pool by making it unavailable. The unit is taken from the free-list so
+     * no search over the items is needed.
+     *
+     * @return the unit index of the item that was taken, which should be handed back to {@link #releaseUnit(int)}
+     *
+     * @throws NoSuchElementException
+     *         if no unit of this pool is available
+     */
+    int claimUnit() throws NoSuchElementException {
+        if (currentAvailable <= 0) throw new NoSuchElementException(getName());
+        int unit = unitOrder[currentAvailable - 1];
+        setUnitAvailable(unit, false);
+        return unit;
+    }
+
+    /**
+     * Takes a number of available units out of the pool in one operation. The taken units are the ones at the end of
+     * the free-list, so moving the free-list boundary back by the count takes all of them without a swap or search.
+     *
+     * @param count
+     *         the number of units to take
+     * @return the unit indices of the items that were taken, each to be handed back to {@link #releaseUnit(int)}
+     *
+     * @throws NoSuchElementException
+     *         if fewer than `count` units of this pool are available. no unit is taken when this is thrown.
+     * @throws IllegalArgumentException
+     *         if the count is negative
+     */
+    int[] claimUnits(int count) throws NoSuchElementException, IllegalArgumentException {
+        if (count < 0) throw new IllegalArgumentException("count can't be negative: " + count);
+        if (count > currentAvailable) {
+            throw new NoSuchElementException(String.format("%s has %d of the %d units wanted",
+                                                           getName(),
+                                                           currentAvailable,
+                                                           count));
+        }
+
+        int[] units = Arrays.copyOfRange(unitOrder, currentAvailable - count, currentAvailable);
+        currentAvailable -= count;
+        if (count > 0) markFormattedAmountDirty();
+
+        // the models' listeners will find the units already in this state and do nothing
+        if (unitModels != null) {
+            for (int unit : units) {
+                if (unitModels[unit] != null) unitModels[unit].setAvailable(false);
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Returns a specific unit back to the pool by making it available again.
+     *
+     * @param unit
+     *         the unit index given by {@link #claimUnit()}
+     * @throws NoSuchElementException
+     *         if the unit does not exist or is already available
+     */
+    void releaseUnit(int unit) throws NoSuchElementException {
+        if (!isUnitLive(unit) || isUnitAvailable(unit)) {
+            throw new NoSuchElementException(String.format("%s unit #%d is not held", getName(), unit));
+        }
+        setUnitAvailable(unit, true);
+    }
+
+    /**
+     * Gets the requestable model behind a unit index, creating it if no model has been asked for yet.
+     *
+     * @param unit
+     *         the unit index given by {@link #claimUnit()}
+     * @return the item of that unit
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the unit does not exist
+     */
+    public Requestable getItem(int unit) throws IndexOutOfBoundsException {
+        if (!isUnitLive(unit)) throw new IndexOutOfBoundsException(getName() + " unit #" + unit);
+        return materialize(unit);
     }
 
     /**
@@ -78,9 +225,18 @@ public class AvailabilityWatcher {
      *
      * @return an unmodifiable observable list of items
      *
+     * @implNote asking for the list creates the model of every unit. Prefer {@link #getItem(int)} when only one model
+     *         is needed.
      * @see #addItem(Requestable)
      */
     public ObservableList<Requestable> getItems() {
+        if (items == null) {
+            items = FXCollections.observableArrayList();
+            for (int unit = 0; unit < slotCount; unit++) {
+                if (isUnitLive(unit)) items.add(materialize(unit));
+            }
+            items.addListener(itemsListChangeListener_detachModels);
+        }
         return FXCollections.unmodifiableObservableList(items);
     }
 
@@ -99,18 +255,79 @@ public class AvailabilityWatcher {
                                                              getName()));
         }
 
-        item.availableProperty().addListener(availableChangeListener);
-        return items.add(item);
+        int unit = addUnit(item.isAvailable());
+        attachModel(unit, item);
+        if (items != null) items.add(item);
+        markFormattedAmountDirty();
+        return true;
+    }
+
+    /**
+     * Removes an item from this watcher. The item's listener is detached and the item is no longer part of the pool.
+     *
+     * @param item
+     *         the item to remove
+     * @return true if the item was part of this watcher and was removed
+     *
+     * @throws IllegalStateException
+     *         if the item is in use. an item has to be handed back before it can be removed.
+     */
+    public boolean removeItem(Requestable item) throws IllegalStateException {
+        Integer unit = (unitIndex == null) ? null : unitIndex.get(item);
+        if (unit == null) return false;
+        if (!isUnitAvailable(unit)) {
+            throw new IllegalStateException(String.format("%s unit #%d is in use and can't be removed",
+                                                          getName(),
+                                                          unit));
+        }
+
+        removeUnit(unit);
+        markFormattedAmountDirty();
+        return true;
+    }
+
+    /**
+     * Adds a number of available units to this watcher without creating a model for any of them.
+     *
+     * @param count
+     *         the number of units to add
+     */
+    void addUnits(int count) {
+        for (int i = 0; i < count; i++) {
+            int unit = addUnit(true);
+            if (items != null) items.add(materialize(unit));
+        }
+        if (count > 0) markFormattedAmountDirty();
+    }
+
+    /**
+     * Removes up to a number of available units from this watcher. Units that are in use are never removed.
+     *
+     * @param count
+     *         the number of units to remove
+     * @return the number of units that were removed, which is less than `count` if not enough units were available
+     */
+    int removeUnits(int count) {
+        int removed = 0;
+        for (; removed < count && currentAvailable > 0; removed++) {
+            removeUnit(unitOrder[currentAvailable - 1]);
+        }
+        if (removed > 0) markFormattedAmountDirty();
+        return removed;
     }
 
     /**
-     * Checks all items in this watcher's collection for the state of their availability property and sums the number
-     * that are available/true.
+     * Gets the number of items in this watcher's collection whose availability property is true.
      *
      * @return the number of available items
+     *
+     * @implNote the count is maintained as units change rather than counted from the items. it changes at once,
+     *         while the formatted amount and its change events are coalesced until the end of the FX pulse, so this
+     *         count can be ahead of the last event that was sent.
+     * @see #getPublishedAvailable()
      */
     public int getCurrentAvailable() {
-        return items.stream().filter(Requestable::isAvailable).mapToInt(element -> 1).sum();
+        return currentAvailable;
     }
 
     /**
@@ -119,7 +336,26 @@ public class AvailabilityWatcher {
      * @return the number of total items in this watcher's collection.
      */
     public Integer getTotalAmount() {
-        return items.size();
+        return unitCount;
+    }
+
+    /**
+     * Gets the recent history of how busy this watcher's units have been. The history is sampled by the container at a
+     * fixed interval.
+     *
+     * @return the utilization ring buffer of this watcher
+     *
+     * @see AvailabilityContainer#setSampleInterval(java.time.Duration)
+     */
+    public UtilizationHistory getUtilizationHistory() {
+        return utilizationHistory;
+    }
+
+    /**
+     * Records the current counts into the utilization history.
+     */
+    void sampleUtilization() {
+        utilizationHistory.record(currentAvailable, unitCount);
     }
 
     /**
@@ -144,6 +380,8 @@ public class AvailabilityWatcher {
      * @return the formattedAmount string property object.
      *
      * @implSpec this property should be changed dynamically by a listener.
+     * @implNote all availability changes made within one FX pulse are coalesced into a single update of this property,
+     *         so views bound to it repaint once per batch instead of once per unit.
      * @see #createFormattedAmount()
      * @see #handleAvailableChangeEvent_UpdateFormattedAmount(ObservableValue, Boolean, Boolean)
      *         availableChangeListener
@@ -156,8 +394,24 @@ public class AvailabilityWatcher {
         return formattedAmount.get();
     }
 
-    private void setFormattedAmount(String formattedAmount) {
-        this.formattedAmount.setValue(formattedAmount);
+    /**
+     * Gets the number of available units as of the last update of the formatted amount. Unlike {@link
+     * #getCurrentAvailable()}, this only changes together with the formatted amount property, so anything kept in order
+     * by that property's change events, such as the sorted and filtered views of a container, should read this count.
+     *
+     * @return the published number of available units
+     */
+    int getPublishedAvailable() {
+        return publishedAvailable;
+    }
+
+    /**
+     * Publishes the current counts, by updating the published count and then the formatted amount, so listeners of the
+     * formatted amount see the count that goes with it.
+     */
+    private void publishCounts() {
+        publishedAvailable = currentAvailable;
+        formattedAmount.setValue(createFormattedAmount());
     }
 
     /**
@@ -171,9 +425,9 @@ public class AvailabilityWatcher {
      * @return a station watcher object.
      */
     static AvailabilityWatcher initWatcher(ObservableList<Requestable> requestables, String name) {
-        AvailabilityWatcher watcher = new AvailabilityWatcher(name);
+        AvailabilityWatcher watcher = new AvailabilityWatcher(name, null);
         requestables.forEach(watcher::addItem);
-        watcher.setFormattedAmount(watcher.createFormattedAmount());
+        watcher.publishCounts();
         return watcher;
     }
 
@@ -197,12 +451,202 @@ public class AvailabilityWatcher {
      * @return a string for the formatted amount property.
      */
     private String createFormattedAmount() {
-        return String.format("%d/%d", getCurrentAvailable(), getTotalAmount());
+        return String.valueOf(currentAvailable) + '/' + unitCount;
+    }
+
+    /**
+     * Marks the formatted amount as out of date and queues a single update of it for the current FX pulse. Any further
+     * change made before the update runs is picked up by that same update, so a burst of claims and releases, such as
+     * a reservation of many units, leads to one update of the views instead of one per unit. Changes made outside of
+     * the FX thread have no pulse to be coalesced into, so they update the property right away.
+     * <p>
+     * Until the queued update runs, {@link #getCurrentAvailable()} is ahead of the formatted amount and of every event
+     * sent for it. Anything kept in step with those events should read {@link #getPublishedAvailable()} instead.
+     */
+    private void markFormattedAmountDirty() {
+        if (!Platform.isFxApplicationThread()) {
+            publishCounts();
+        } else if (!formattedAmountDirty) {
+            formattedAmountDirty = true;
+            Platform.runLater(this::flushFormattedAmount);
+        }
+    }
+
+    /**
+     * Applies a queued update of the formatted amount, using the counts as they are at the end of the batch.
+     */
+    private void flushFormattedAmount() {
+        formattedAmountDirty = false;
+        publishCounts();
+    }
+
+    /**
+     * Adds a unit to the arrays, reusing the slot of a removed unit if there is one and growing the arrays when full.
+     *
+     * @param available
+     *         the availability the unit starts with
+     * @return the unit index of the new unit
+     */
+    private int addUnit(boolean available) {
+        int unit;
+        if (unitCount < slotCount) {
+            // the first removed slot sits right after the live units
+            unit = unitOrder[unitCount];
+        } else {
+            unit = slotCount;
+            if (unitOrder.length == unit) {
+                int capacity = Math.max(4, unit * 2);
+                unitOrder = Arrays.copyOf(unitOrder, capacity);
+                unitPosition = Arrays.copyOf(unitPosition, capacity);
+                if (unitModels != null) unitModels = Arrays.copyOf(unitModels, capacity);
+            }
+            unitOrder[unit] = unit;
+            unitPosition[unit] = unit;
+            slotCount++;
+        }
+        unitCount++;
+        if (available) {
+            swapUnitPositions(unitPosition[unit], currentAvailable);
+            currentAvailable++;
+        }
+        return unit;
+    }
+
+    /**
+     * Moves an available unit past the live units, where its slot waits to be reused, and drops the unit's model.
+     *
+     * @param unit
+     *         the unit index of an available unit
+     */
+    private void removeUnit(int unit) {
+        currentAvailable--;
+        swapUnitPositions(unitPosition[unit], currentAvailable);
+        unitCount--;
+        swapUnitPositions(currentAvailable, unitCount);
+
+        Requestable model = (unitModels == null) ? null : unitModels[unit];
+        if (model == null) return;
+        if (items != null) items.remove(model); // the items listener detaches the model
+        else detachModel(model);
+    }
+
+    /**
+     * @param unit
+     *         the unit index
+     * @return true if the unit exists and has not been removed
+     */
+    private boolean isUnitLive(int unit) {
+        return unit >= 0 && unit < slotCount && unitPosition[unit] < unitCount;
+    }
+
+    /**
+     * @param unit
+     *         the unit index
+     * @return true if the unit is available
+     */
+    private boolean isUnitAvailable(int unit) {
+        return unitPosition[unit] < currentAvailable;
     }
 
     /**
-     * handles the change event created by the station's available property. updates the formatted amount string when
-     * said property changes.
+     * Changes the availability of a unit by moving it across the free-list boundary. If the unit has a model, the
+     * model's property is changed to match.
+     *
+     * @param unit
+     *         the unit index
+     * @param available
+     *         the new availability of the unit
+     */
+    private void setUnitAvailable(int unit, boolean available) {
+        if (isUnitAvailable(unit) == available) return;
+
+        if (available) {
+            swapUnitPositions(unitPosition[unit], currentAvailable);
+            currentAvailable++;
+        } else {
+            currentAvailable--;
+            swapUnitPositions(unitPosition[unit], currentAvailable);
+        }
+        markFormattedAmountDirty();
+
+        // the model's listener will find the unit already in this state and do nothing
+        if (unitModels != null && unitModels[unit] != null) unitModels[unit].setAvailable(available);
+    }
+
+    /**
+     * Gets the model of a unit, creating it through the unit factory if it doesn't exist yet.
+     *
+     * @param unit
+     *         the unit index
+     * @return the model of the unit
+     *
+     * @throws IllegalStateException
+     *         if the model doesn't exist and this watcher has no unit factory
+     */
+    private Requestable materialize(int unit) throws IllegalStateException {
+        if (unitModels != null && unitModels[unit] != null) return unitModels[unit];
+        if (unitFactory == null) throw new IllegalStateException("No model can be made for " + getName());
+
+        Requestable model = unitFactory.apply(getName());
+        model.setAvailable(isUnitAvailable(unit));
+        attachModel(unit, model);
+        return model;
+    }
+
+    /**
+     * Links a model to a unit and applies the availability listener to it, so changes made through the model reach the
+     * unit's state. The model is given a weak listener so it does not keep this watcher alive.
+     *
+     * @param unit
+     *         the unit index
+     * @param model
+     *         the model of the unit
+     */
+    private void attachModel(int unit, Requestable model) {
+        if (unitModels == null) {
+            unitModels = new Requestable[unitOrder.length];
+            unitIndex = new IdentityHashMap<>();
+        }
+        unitModels[unit] = model;
+        unitIndex.put(model, unit);
+        model.availableProperty().addListener(weakAvailableChangeListener);
+    }
+
+    /**
+     * Unlinks a model from its unit and takes the availability listener off of it. Does nothing if the model isn't
+     * linked.
+     *
+     * @param model
+     *         the model of a unit
+     */
+    private void detachModel(Requestable model) {
+        Integer unit = (unitIndex == null) ? null : unitIndex.remove(model);
+        if (unit == null) return;
+        if (unitModels[unit] == model) unitModels[unit] = null;
+        model.availableProperty().removeListener(weakAvailableChangeListener);
+    }
+
+    /**
+     * Swaps two positions of the free-list, keeping the inverse positions consistent.
+     *
+     * @param positionA
+     *         the first position in the unit order
+     * @param positionB
+     *         the second position in the unit order
+     */
+    private void swapUnitPositions(int positionA, int positionB) {
+        int unitA = unitOrder[positionA];
+        int unitB = unitOrder[positionB];
+        unitOrder[positionA] = unitB;
+        unitOrder[positionB] = unitA;
+        unitPosition[unitB] = positionA;
+        unitPosition[unitA] = positionB;
+    }
+
+    /**
+     * handles the change event created by a unit model's available property. moves the unit across the free-list
+     * boundary, updates the running available count and marks the formatted amount string for an update when said
+     * property changes.
      *
      * @param observableValue
      *         the observable object (the available property object)
@@ -214,6 +658,27 @@ public class AvailabilityWatcher {
     private void handleAvailableChangeEvent_UpdateFormattedAmount(ObservableValue<? extends Boolean> observableValue,
                                                                   Boolean oldValue,
                                                                   Boolean newValue) {
-        setFormattedAmount(createFormattedAmount());
+        Object  bean = ((ReadOnlyProperty<?>) observableValue).getBean();
+        Integer unit = (unitIndex == null) ? null : unitIndex.get(bean);
+        if (unit == null) return;
+
+        setUnitAvailable(unit, newValue);
+    }
+
+    /**
+     * Handler method that implements the {@link ListChangeListener}'s functional interface. Used as and treated as a
+     * valid ListChangeListener.
+     * <p>
+     * This Listener is notified if the items list changed. Any model that left the list is detached from its unit, so a
+     * removed unit's model holds no listener of this watcher and this watcher holds no reference to the model.
+     *
+     * @param change
+     *         the Change object that describes all the changes to the list since the last call.
+     */
+    private void handleListChangeEvent_DetachModels(ListChangeListener.Change<? extends Requestable> change) {
+        while (change.next()) {
+            if (change.wasPermutated()) continue;
+            change.getRemoved().forEach(this::detachModel);
+        }
     }
 }
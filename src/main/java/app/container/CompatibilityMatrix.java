@@ -0,0 +1,140 @@
+package app.container;
+
+import java.util.*;
+
+/**
+ * An immutable matrix of which equipment can be used at which station, compiled once from the inventory config. Every
+ * station and equipment name is given an index, and each station has a row of bits with one bit per equipment, so
+ * asking if an equipment can be used at a station is a single bit test.
+ * <p>
+ * A station's row lists every equipment it can use, and reading one equipment's bit across every row lists the
+ * stations that can use that equipment, such as the stations that can play a given title.
+ *
+ * @see StationContainer#getCompatibility()
+ */
+public final class CompatibilityMatrix {
+    private final Map<String, Integer> stationIndex;
+    private final Map<String, Integer> equipmentIndex;
+    private final String[]             stationNames;
+    private final String[]             equipmentNames;
+    private final long[]               bits; // row-major, `wordsPerRow` words per station
+    private final int                  wordsPerRow;
+
+    private CompatibilityMatrix(String[] stationNames, String[] equipmentNames) {
+        this.stationNames = stationNames;
+        this.equipmentNames = equipmentNames;
+        this.stationIndex = indexOf(stationNames);
+        this.equipmentIndex = indexOf(equipmentNames);
+        this.wordsPerRow = (equipmentNames.length + 63) >>> 6;
+        this.bits = new long[stationNames.length * wordsPerRow];
+    }
+
+    /**
+     * Compiles the matrix from the equipment each station can use.
+     *
+     * @param stationMap
+     *         each station name mapped to the names of the equipment it can use
+     * @param equipmentNames
+     *         the names of all equipment, including any no station can use
+     * @return the compiled matrix
+     */
+    static CompatibilityMatrix of(Map<String, Set<String>> stationMap, Collection<String> equipmentNames) {
+        Set<String> allEquipment = new TreeSet<>(equipmentNames);
+        stationMap.values().forEach(allEquipment::addAll);
+
+        CompatibilityMatrix matrix = new CompatibilityMatrix(new TreeSet<>(stationMap.keySet()).toArray(new String[0]),
+                                                             allEquipment.toArray(new String[0]));
+        stationMap.forEach((station, equipable) -> {
+            int row = matrix.stationIndex.get(station) * matrix.wordsPerRow;
+            for (String equipment : equipable) {
+                int column = matrix.equipmentIndex.get(equipment);
+                matrix.bits[row + (column >>> 6)] |= 1L << column;
+            }
+        });
+        return matrix;
+    }
+
+    /* ****************************************** EXTERNAL API ***************************************************** */
+
+    /**
+     * @param stationName
+     *         the name of a station
+     * @param equipmentName
+     *         the name of an equipment
+     * @return true if the equipment can be used at the station. false if not, or if either name is unknown.
+     */
+    public boolean isCompatible(String stationName, String equipmentName) {
+        Integer station   = stationIndex.get(stationName);
+        Integer equipment = equipmentIndex.get(equipmentName);
+        return station != null && equipment != null && isSet(station, equipment);
+    }
+
+    /**
+     * Checks if every equipment can be used at the station.
+     *
+     * @param stationName
+     *         the name of a station
+     * @param equipmentNames
+     *         the names of equipment
+     * @return true if all of the equipment can be used at the station
+     */
+    public boolean isCompatible(String stationName, Collection<String> equipmentNames) {
+        for (String equipmentName : equipmentNames) {
+            if (!isCompatible(stationName, equipmentName)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the equipment that can be used at a station by scanning the station's row.
+     *
+     * @param stationName
+     *         the name of a station
+     * @return the names of the equipment, in name order. empty if the station is unknown.
+     */
+    public List<String> getEquipmentFor(String stationName) {
+        Integer station = stationIndex.get(stationName);
+        if (station == null) return Collections.emptyList();
+
+        List<String> result = new ArrayList<>();
+        int          row    = station * wordsPerRow;
+        for (int word = 0; word < wordsPerRow; word++) {
+            for (long w = bits[row + word]; w != 0; w &= w - 1) {
+                result.add(equipmentNames[(word << 6) + Long.numberOfTrailingZeros(w)]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the stations that can use an equipment, such as the stations that can play a title.
+     *
+     * @param equipmentName
+     *         the name of an equipment
+     * @return the names of the stations, in name order. empty if the equipment is unknown.
+     */
+    public List<String> getStationsFor(String equipmentName) {
+        Integer equipment = equipmentIndex.get(equipmentName);
+        if (equipment == null) return Collections.emptyList();
+
+        List<String> result = new ArrayList<>();
+        for (int station = 0; station < stationNames.length; station++) {
+            if (isSet(station, equipment)) result.add(stationNames[station]);
+        }
+        return result;
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    private boolean isSet(int station, int equipment) {
+        return (bits[station * wordsPerRow + (equipment >>> 6)] & (1L << equipment)) != 0;
+    }
+
+    private static Map<String, Integer> indexOf(String[] names) {
+        Map<String, Integer> index = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,105 @@
+package app.container;
+
+import app.util.collection.IndexedMinHeap;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * This class times the deadlines of sessions and waitlisted requests, such as a session's time running out, from a
+ * single clock. Each entry's deadline is kept in one min-heap keyed by end time, so each tick only looks at the
+ * deadlines that are due, and scheduling, rescheduling or cancelling a deadline is O(log n).
+ * <p>
+ * A deadline fires once. After it fires the entry is forgotten until it is scheduled again, such as when a session is
+ * refreshed.
+ */
+class DeadlineScheduler {
+    private static final Duration TICK_DURATION = Duration.ofSeconds(1);
+
+    private static DeadlineScheduler instance = null;
+
+    private final IndexedMinHeap<Object> deadlines  = new IndexedMinHeap<>(); // keyed by end time in seconds of day
+    private final Map<Object, Runnable>  onDeadline = new IdentityHashMap<>();
+    private final Timeline               ticker;
+
+    private DeadlineScheduler() {
+        this.ticker = new Timeline(new KeyFrame(javafx.util.Duration.millis(TICK_DURATION.toMillis()),
+                                                event -> fireDue()));
+        this.ticker.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    static DeadlineScheduler getInstance() {
+        if (instance == null) {
+            synchronized (DeadlineScheduler.class) {
+                if (instance == null) instance = new DeadlineScheduler();
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Schedules an entry's deadline, replacing any deadline the entry already has. An entry whose deadline already
+     * fired is armed again.
+     *
+     * @param entry
+     *         the session or waitlisted request, tracked by identity
+     * @param deadline
+     *         the end time, in seconds of the day
+     * @param action
+     *         run once when the deadline passes
+     */
+    void schedule(Object entry, int deadline, Runnable action) {
+        onDeadline.put(entry, action);
+        deadlines.put(entry, deadline);
+        ticker.play();
+    }
+
+    /**
+     * Moves the deadline of an entry that is still waiting for it. Unlike {@link #schedule(Object, int, Runnable)}, an
+     * entry whose deadline already fired is not armed again.
+     *
+     * @param entry
+     *         the session or waitlisted request
+     * @param deadline
+     *         the new end time, in seconds of the day
+     * @return true if the entry had a pending deadline
+     */
+    boolean reschedule(Object entry, int deadline) {
+        if (!deadlines.contains(entry)) return false;
+        deadlines.put(entry, deadline);
+        return true;
+    }
+
+    /**
+     * Cancels an entry's deadline so it never fires.
+     *
+     * @param entry
+     *         the session or waitlisted request
+     * @return true if the entry had a pending deadline
+     */
+    boolean cancel(Object entry) {
+        onDeadline.remove(entry);
+        boolean cancelled = deadlines.remove(entry);
+        if (deadlines.isEmpty()) ticker.stop();
+        return cancelled;
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    /**
+     * Fires every deadline that has passed. Each is taken off the heap before its action runs, so an action may
+     * schedule or cancel freely.
+     */
+    private void fireDue() {
+        int now = LocalTime.now().toSecondOfDay();
+        while (!deadlines.isEmpty() && deadlines.peekKey() < now) {
+            Runnable action = onDeadline.remove(deadlines.poll());
+            if (action != null) action.run();
+        }
+        if (deadlines.isEmpty()) ticker.stop();
+    }
+}
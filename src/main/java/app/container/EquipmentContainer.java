@@ -1,13 +1,14 @@
 package app.container;
 
 import app.model.Equipment;
-import app.model.Requestable;
 import app.util.io.InventoryConfigAccessor;
-import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -21,12 +22,24 @@ import java.util.stream.Collectors;
  */
 public class EquipmentContainer extends AvailabilityContainer {
     private static final Logger                LOGGER = LogManager.getLogger(EquipmentContainer.class);
-    private static       AvailabilityContainer instance;
+    private static       EquipmentContainer    instance;
+
+    // console prefix -> watchers of the titles with that prefix, e.g. "ps4" -> all ps4 titles
+    private final Map<String, Set<AvailabilityWatcher>>   prefixIndex = new HashMap<>();
+    private final ListChangeListener<AvailabilityWatcher> watcherListChangeListener_updatePrefixIndex;
+
+    // console prefix -> shared, name ordered view of the titles with that prefix
+    private final Map<String, ObservableList<AvailabilityWatcher>> prefixViews  = new HashMap<>();
+    // station name -> shared, name ordered view of the equipment that can be used at that station
+    private final Map<String, ObservableList<AvailabilityWatcher>> stationViews = new HashMap<>();
 
     /**
      * Constructs the session container and creates the listener objects to be used within the class.
      */
-    private EquipmentContainer() {}
+    private EquipmentContainer() {
+        this.watcherListChangeListener_updatePrefixIndex = this::handleListChangeEvent_UpdatePrefixIndex;
+        getWatchers().addListener(watcherListChangeListener_updatePrefixIndex);
+    }
 
     /**
      * Initializes the station container.
@@ -35,16 +48,13 @@ public class EquipmentContainer extends AvailabilityContainer {
      *
      * @implSpec Needs to create an independent and valid construction first and then apply relevant listeners.
      */
-    private static AvailabilityContainer initContainer(InventoryConfigAccessor ica) {
+    private static EquipmentContainer initContainer(InventoryConfigAccessor ica) {
         EquipmentContainer container = new EquipmentContainer();
 
-        container.getWatchers().addAll(ica.getEquipmentSet().stream().map(name -> {
-            ObservableList<Requestable> equipments = FXCollections.observableArrayList();
-            for (int i = 0; i < ica.getTotalMap().getOrDefault(name, 0); i++) {
-                equipments.add(Equipment.equipmentFactory(name));
-            }
-            return AvailabilityWatcher.initWatcher(equipments, name);
-        }).collect(Collectors.toList()));
+        container.getWatchers().addAll(ica.getEquipmentSet().stream().map(
+                name -> AvailabilityWatcher.initWatcher(name,
+                                                        ica.getTotalMap().getOrDefault(name, 0),
+                                                        Equipment::equipmentFactory)).collect(Collectors.toList()));
         return container;
     }
 
@@ -53,7 +63,7 @@ public class EquipmentContainer extends AvailabilityContainer {
     /**
      * @return a singleton instance of the container.
      */
-    public static AvailabilityContainer getInstance() {
+    public static EquipmentContainer getInstance() {
         if (instance == null) {
             synchronized (EquipmentContainer.class) {
                 if (instance == null) {
@@ -68,7 +78,7 @@ public class EquipmentContainer extends AvailabilityContainer {
      * @param ica the inventory config accessor for initializing equipment with.
      * @return a singleton instance of the container.
      */
-    public static AvailabilityContainer getInstance(InventoryConfigAccessor ica) {
+    public static EquipmentContainer getInstance(InventoryConfigAccessor ica) {
         if (instance == null) {
             synchronized (EquipmentContainer.class) {
                 if (instance == null) {
@@ -78,4 +88,107 @@ public class EquipmentContainer extends AvailabilityContainer {
         }
         return instance;
     }
+
+    /**
+     * Gets the watchers of every equipment that shares a console prefix. This is an indexed lookup, so it doesn't search
+     * the whole equipment list.
+     *
+     * @param prefix
+     *         the console prefix, e.g. "ps4"
+     * @return an unmodifiable collection of the watchers with the prefix, empty if there are none
+     *
+     * @see InventoryConfigAccessor#getPrefix(String)
+     */
+    public Collection<AvailabilityWatcher> getWatchersByPrefix(String prefix) {
+        Set<AvailabilityWatcher> prefixed = prefixIndex.get(prefix);
+        return (prefixed == null) ? Collections.emptySet() : Collections.unmodifiableSet(prefixed);
+    }
+
+    /**
+     * Gets the watchers of every equipment that shares a console prefix and has at least one unit available.
+     *
+     * @param prefix
+     *         the console prefix, e.g. "ps4"
+     * @return a list of the available watchers with the prefix
+     */
+    public List<AvailabilityWatcher> getAvailableByPrefix(String prefix) {
+        return getWatchersByPrefix(prefix).stream()
+                                          .filter(watcher -> watcher.getCurrentAvailable() > 0)
+                                          .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets a shared view of the watchers of every equipment that shares a console prefix, in name order. Like the views
+     * of {@link #getView(WatcherView)}, the view is made once per prefix and kept up to date as equipment is added or
+     * removed.
+     *
+     * @param prefix
+     *         the console prefix, e.g. "ps4"
+     * @return an unmodifiable, live list of the watchers with the prefix
+     */
+    public ObservableList<AvailabilityWatcher> getViewByPrefix(String prefix) {
+        ObservableList<AvailabilityWatcher> derived = prefixViews.get(prefix);
+        if (derived == null) {
+            derived = new FilteredList<>(getView(WatcherView.BY_NAME), watcher -> prefix.equals(
+                    InventoryConfigAccessor.getPrefix(watcher.getName())));
+            prefixViews.put(prefix, derived);
+        }
+        return derived;
+    }
+
+    /**
+     * Gets a shared view of the watchers of every equipment that can be used at a station, in name order. The view is
+     * made once per station from the station's row of the compatibility matrix and kept up to date as equipment is
+     * added or removed, so selecting a station doesn't rebuild its equipment list.
+     *
+     * @param stationName
+     *         the name of the station
+     * @return an unmodifiable, live list of the watchers usable at the station. empty if the station is unknown.
+     *
+     * @see CompatibilityMatrix#isCompatible(String, String)
+     */
+    public ObservableList<AvailabilityWatcher> getViewByStation(String stationName) {
+        ObservableList<AvailabilityWatcher> derived = stationViews.get(stationName);
+        if (derived == null) {
+            CompatibilityMatrix compatibility = StationContainer.getInstance().getCompatibility();
+            derived = new FilteredList<>(getView(WatcherView.BY_NAME), watcher -> compatibility.isCompatible(
+                    stationName, watcher.getName()));
+            stationViews.put(stationName, derived);
+        }
+        return derived;
+    }
+
+    /**
+     * @return an unmodifiable set of every console prefix that has at least one equipment
+     */
+    public Set<String> getPrefixes() {
+        return Collections.unmodifiableSet(prefixIndex.keySet());
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    /**
+     * Handler method that implements the {@link ListChangeListener}'s functional interface. Used as and treated as a
+     * valid ListChangeListener.
+     * <p>
+     * This Listener is notified if the watchers list changed. Added and removed watchers are put into or dropped from
+     * the set of their console prefix. Equipment without a prefix is not indexed.
+     *
+     * @param change
+     *         the Change object that describes all the changes to the list since the last call.
+     */
+    private void handleListChangeEvent_UpdatePrefixIndex(ListChangeListener.Change<? extends AvailabilityWatcher> change) {
+        while (change.next()) {
+            if (change.wasPermutated() || change.wasUpdated()) continue;
+            for (AvailabilityWatcher removed : change.getRemoved()) {
+                String prefix = InventoryConfigAccessor.getPrefix(removed.getName());
+                Set<AvailabilityWatcher> prefixed = prefixIndex.get(prefix);
+                if (prefixed != null && prefixed.remove(removed) && prefixed.isEmpty()) prefixIndex.remove(prefix);
+            }
+            for (AvailabilityWatcher added : change.getAddedSubList()) {
+                String prefix = InventoryConfigAccessor.getPrefix(added.getName());
+                if (!prefix.isEmpty()) prefixIndex.computeIfAbsent(prefix, p -> new LinkedHashSet<>()).add(added);
+            }
+        }
+    }
 }
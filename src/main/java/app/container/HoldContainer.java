@@ -0,0 +1,214 @@
+package app.container;
+
+import app.util.collection.TimingWheel;
+import app.util.exception.RequestFailure;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.MapChangeListener;
+import javafx.collections.ObservableMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * This container class manages holds, which are reservations of station and equipment units that are set aside for a
+ * single patron for a limited time. It is meant for when a unit frees up and the next waitlisted patron has to be
+ * found before a walk-in takes it.
+ * <p>
+ * A held unit is claimed from its {@link AvailabilityContainer} like any other reservation, so it counts as unavailable
+ * to everyone. Only the holder can get it back, by taking the hold when they check out. A hold that is not taken within
+ * the hold TTL expires and its units are returned to their pools.
+ * <p>
+ * Every hold is timed by one hashed timing wheel that ticks once a second, so no timer or thread is made per hold and
+ * the cost of a tick does not grow with the number of holds.
+ *
+ * @see #setHoldTtl(Duration)
+ */
+public class HoldContainer {
+    private static final Logger   LOGGER           = LogManager.getLogger(HoldContainer.class);
+    public static final  Duration DEFAULT_HOLD_TTL = Duration.ofMinutes(5);
+    private static final Duration TICK_DURATION    = Duration.ofSeconds(1);
+    private static final int      WHEEL_SLOTS      = 512; // one turn of the wheel covers a bit over eight minutes
+
+    private static HoldContainer instance = null;
+
+    private final ObservableMap<Integer, Reservation>        holds    = FXCollections.observableHashMap();
+    private final Map<Integer, TimingWheel.Timeout<Integer>> expiries = new HashMap<>();
+    private final TimingWheel<Integer>                       wheel    = new TimingWheel<>(WHEEL_SLOTS);
+    private final Timeline                                   ticker;
+    private       Duration                                   holdTtl  = DEFAULT_HOLD_TTL;
+
+    private HoldContainer() {
+        this.ticker = new Timeline(new KeyFrame(javafx.util.Duration.millis(TICK_DURATION.toMillis()),
+                                                event -> wheel.tick(this::expireHold)));
+        this.ticker.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    /* ****************************************** EXTERNAL API ***************************************************** */
+
+    public static HoldContainer getInstance() {
+        if (instance == null) {
+            synchronized (HoldContainer.class) {
+                if (instance == null) instance = new HoldContainer();
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Attempts to hold one unit of the station and the wanted units of each equipment name for a patron. The units are
+     * claimed as one reservation and are released again if the hold is not taken within the hold TTL.
+     *
+     * @param holder
+     *         the banner id of the patron the units are held for
+     * @param stationName
+     *         the name of the station to hold a unit of
+     * @param equipmentQuantities
+     *         the names of the equipment mapped to the number of units to hold of each
+     * @return the held reservation, or empty if holds are turned off or any of the units are unavailable. if the
+     *         patron already has a hold, that hold is returned unchanged.
+     *
+     * @throws RequestFailure
+     *         if a unit failed to be claimed. nothing is left held when this is thrown.
+     * @see Reservation#tryReserve(String, Map)
+     */
+    Optional<Reservation> placeHold(int holder, String stationName, Map<String, Integer> equipmentQuantities)
+            throws RequestFailure {
+        if (holds.containsKey(holder)) return Optional.of(holds.get(holder));
+        if (holdTtl.isZero()) return Optional.empty();
+
+        Optional<Reservation> reservation = Reservation.tryReserve(stationName, equipmentQuantities);
+        reservation.ifPresent(r -> {
+            long ticks = (holdTtl.toMillis() + TICK_DURATION.toMillis() - 1) / TICK_DURATION.toMillis();
+            expiries.put(holder, wheel.schedule(holder, ticks));
+            holds.put(holder, r);
+            ticker.play();
+        });
+        return reservation;
+    }
+
+    /**
+     * Takes a patron's hold off the clock and hands its reservation to the caller, who is then responsible for
+     * releasing it.
+     *
+     * @param holder
+     *         the banner id of the patron
+     * @return the reservation of the hold, or empty if the patron has no hold
+     */
+    Optional<Reservation> takeHold(int holder) {
+        if (!holds.containsKey(holder)) return Optional.empty();
+        wheel.cancel(expiries.remove(holder));
+        stopIfIdle();
+        return Optional.of(holds.remove(holder));
+    }
+
+    /**
+     * Cancels a patron's hold and returns its units to their pools.
+     *
+     * @param holder
+     *         the banner id of the patron
+     * @return true if the patron had a hold
+     *
+     * @throws RequestFailure
+     *         if a unit could not be released
+     */
+    public boolean cancelHold(int holder) throws RequestFailure {
+        Reservation reservation = holds.get(holder);
+        if (reservation == null) return false;
+        wheel.cancel(expiries.remove(holder));
+        stopIfIdle();
+        // release before removing so listeners of the holds see the units as available
+        try {
+            reservation.release();
+        } finally {
+            holds.remove(holder);
+        }
+        return true;
+    }
+
+    /**
+     * @param holder
+     *         the banner id of the patron
+     * @return true if units are being held for the patron
+     */
+    public boolean hasHold(int holder) {
+        return holds.containsKey(holder);
+    }
+
+    /**
+     * @return the number of holds that are outstanding
+     */
+    public int getHoldCount() {
+        return holds.size();
+    }
+
+    /**
+     * Changes how long a hold lasts before it expires. Holds that are already placed keep the TTL they were placed
+     * with.
+     *
+     * @param holdTtl
+     *         how long a new hold lasts. a zero TTL turns holds off.
+     * @throws IllegalArgumentException
+     *         if the TTL is negative
+     */
+    public void setHoldTtl(Duration holdTtl) throws IllegalArgumentException {
+        if (holdTtl.isNegative()) throw new IllegalArgumentException("Hold TTL can't be negative: " + holdTtl);
+        this.holdTtl = holdTtl;
+    }
+
+    public Duration getHoldTtl() {
+        return holdTtl;
+    }
+
+    /**
+     * Helper method for allowing other classes to add a MapChangeListener to this container's holds, keyed by the
+     * holder's banner id. A hold is removed from the map when it is taken, cancelled or expires.
+     *
+     * @param listener
+     *         the map change listener to apply
+     */
+    void addMapChangeListener(MapChangeListener<Integer, Reservation> listener) {
+        holds.addListener(listener);
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    /**
+     * Returns the units of a hold whose time ran out to their pools and lets the staff know.
+     * <p>
+     * Every hold due in a tick is expired in turn, so a failure is logged instead of thrown; otherwise one bad release
+     * would leave the rest of the tick's holds claimed with nothing left to expire them.
+     *
+     * @param holder
+     *         the banner id of the patron whose hold expired
+     */
+    private void expireHold(Integer holder) {
+        expiries.remove(holder);
+        stopIfIdle();
+        Reservation reservation = holds.get(holder);
+        if (reservation == null) return;
+        try {
+            try {
+                reservation.release();
+            } finally {
+                holds.remove(holder);
+            }
+            NoticeContainer.getInstance().createNotice(String.format("The hold for %d has expired", holder));
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to expire the hold for {}", holder);
+            LOGGER.catching(e);
+        }
+    }
+
+    /**
+     * Stops the clock of the wheel while there are no holds to time.
+     */
+    private void stopIfIdle() {
+        if (wheel.isEmpty()) ticker.stop();
+    }
+}
@@ -0,0 +1,176 @@
+package app.container;
+
+import app.util.io.InventoryConfigAccessor;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A type-ahead search index over the names of watchers. Every name is broken into its trigrams (each run of three
+ * characters), and each trigram maps to the watchers whose name contains it. A query then only has to look at the
+ * watchers that share every trigram of the query instead of every watcher. The runs of one and two characters are
+ * indexed as well, so the first keystrokes of a query are a single lookup instead of a scan of every name.
+ * <p>
+ * Only the best matches are kept while ranking, so the cost of ranking grows with the number of results asked for and
+ * not with the number of matches.
+ * <p>
+ * Names and queries are matched case-insensitively, and the console prefix delimiter is treated as a space so "ps4 doo"
+ * finds "ps4_Doom".
+ *
+ * @see AvailabilityContainer#search(String, int)
+ */
+class NameSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<String, Set<AvailabilityWatcher>> grams = new HashMap<>();
+    private final Map<AvailabilityWatcher, String>      keys  = new HashMap<>();
+
+    /**
+     * Adds a watcher's name to the index.
+     *
+     * @param watcher
+     *         the watcher to index
+     */
+    void add(AvailabilityWatcher watcher) {
+        String key = normalize(watcher.getName());
+        keys.put(watcher, key);
+        for (String gram : gramsOf(key, 1)) {
+            grams.computeIfAbsent(gram, g -> new HashSet<>()).add(watcher);
+        }
+    }
+
+    /**
+     * Removes a watcher's name from the index.
+     *
+     * @param watcher
+     *         the watcher to drop
+     */
+    void remove(AvailabilityWatcher watcher) {
+        String key = keys.remove(watcher);
+        if (key == null) return;
+        for (String gram : gramsOf(key, 1)) {
+            Set<AvailabilityWatcher> posting = grams.get(gram);
+            if (posting != null && posting.remove(watcher) && posting.isEmpty()) grams.remove(gram);
+        }
+    }
+
+    /**
+     * Finds the watchers whose name contains the query, ranked so that watchers with an available unit come first,
+     * then those where the query appears earlier in the name, then by name.
+     *
+     * @param query
+     *         the text to search for. must not be blank, as every name matches a blank query.
+     * @param limit
+     *         the max number of results
+     * @param filter
+     *         only watchers that pass the filter are ranked and returned
+     * @return the ranked matches, at most `limit` long
+     *
+     * @see #isBlank(String)
+     */
+    List<AvailabilityWatcher> search(String query, int limit, Predicate<? super AvailabilityWatcher> filter) {
+        String needle = normalize(query);
+        if (needle.length() <= GRAM_LENGTH) {
+            // the query is a single indexed run, so its posting is exactly the names that contain it
+            Set<AvailabilityWatcher> posting = grams.get(needle);
+            return (posting == null) ? Collections.emptyList() : rank(posting, needle, limit, filter);
+        }
+
+        // intersect the postings of the query's trigrams, starting from the smallest one
+        List<Set<AvailabilityWatcher>> postings = new ArrayList<>();
+        for (String gram : gramsOf(needle, GRAM_LENGTH)) {
+            Set<AvailabilityWatcher> posting = grams.get(gram);
+            if (posting == null) return Collections.emptyList();
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+
+        List<AvailabilityWatcher> matches = new ArrayList<>();
+        candidates:
+        for (AvailabilityWatcher candidate : postings.get(0)) {
+            for (int i = 1; i < postings.size(); i++) {
+                if (!postings.get(i).contains(candidate)) continue candidates;
+            }
+            // sharing every trigram doesn't guarantee they are in order, so confirm the match
+            if (keys.get(candidate).contains(needle)) matches.add(candidate);
+        }
+        return rank(matches, needle, limit, filter);
+    }
+
+    /**
+     * @param query
+     *         the text to search for
+     * @return true if the query has nothing to match once normalized, so every name would match it
+     */
+    static boolean isBlank(String query) {
+        return normalize(query).isEmpty();
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    /**
+     * Picks the best ranked matches that pass the filter, in their ranked order. Only the best `limit` matches are kept
+     * while going through the matches, in a heap with the worst of them on top, so the matches are never fully sorted.
+     *
+     * @param matches
+     *         the watchers that matched
+     * @param needle
+     *         the normalized query
+     * @param limit
+     *         the max number of results
+     * @param filter
+     *         only watchers that pass the filter are ranked
+     * @return the ranked matches
+     */
+    private List<AvailabilityWatcher> rank(Collection<AvailabilityWatcher> matches,
+                                           String needle,
+                                           int limit,
+                                           Predicate<? super AvailabilityWatcher> filter) {
+        if (limit <= 0) return Collections.emptyList();
+        Comparator<AvailabilityWatcher> order =
+                Comparator.<AvailabilityWatcher>comparingInt(w -> (w.getPublishedAvailable() > 0) ? 0 : 1)
+                          .thenComparingInt(w -> keys.get(w).indexOf(needle))
+                          .thenComparing(AvailabilityContainer.NAME_ORDER);
+
+        PriorityQueue<AvailabilityWatcher> best = new PriorityQueue<>(Math.min(limit, matches.size()) + 1,
+                                                                      order.reversed());
+        for (AvailabilityWatcher match : matches) {
+            if (!filter.test(match)) continue;
+            if (best.size() < limit) {
+                best.add(match);
+            } else if (order.compare(match, best.peek()) < 0) {
+                best.poll();
+                best.add(match);
+            }
+        }
+        List<AvailabilityWatcher> ranked = new ArrayList<>(best);
+        ranked.sort(order);
+        return ranked;
+    }
+
+    /**
+     * @param key
+     *         a normalized name or query
+     * @param shortest
+     *         the length of the shortest runs to include
+     * @return every distinct run of `shortest` up to three characters within the key
+     */
+    private static Set<String> gramsOf(String key, int shortest) {
+        Set<String> result = new HashSet<>();
+        for (int length = shortest; length <= GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= key.length(); i++) {
+                result.add(key.substring(i, i + length));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param text
+     *         a name or query
+     * @return the text in the form that is indexed and matched
+     */
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT).replace(InventoryConfigAccessor.PREFIX_DELIM, ' ');
+    }
+}
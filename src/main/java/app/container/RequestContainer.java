@@ -2,9 +2,13 @@ package app.container;
 
 import app.model.Request;
 import app.model.Waitlist;
+import app.util.exception.RequestFailure;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
 
+import java.util.Map;
+import java.util.Optional;
+
 /**
  * This container class is designed to act as an API for creating and managing Request objects in order to maintain a
  * centralized point of access and enforce access controls so that the state of the system remains valid.
@@ -50,24 +54,56 @@ public class RequestContainer {
         checkOutRequest(Request.initRequest(banner, name, stationName, equipment));
     }
 
+    /**
+     * Helper API method that creates a request object for a number of units of each equipment and attempts to check out
+     * the request object.
+     *
+     * @param banner
+     *         the banner id of the client
+     * @param name
+     *         the name of the client
+     * @param stationName
+     *         the name of the station to be checked out
+     * @param equipmentQuantities
+     *         the names of equipment to be checked out mapped to the number of units of each
+     * @see #checkOutRequest(Request)
+     */
+    public void checkOutRequest(Integer banner,
+                                String name,
+                                String stationName,
+                                Map<String, Integer> equipmentQuantities) {
+        checkOutRequest(Request.initRequest(banner, name, stationName, equipmentQuantities));
+    }
+
     /**
      * Helper API method for checking out a request. This should either create a new session or waitlist the request.
      *
      * @param request
      *         the request to check out
+     * @throws RequestFailure
+     *         if an equipment of the request can't be used at its station, or if the patron already has a session or
+     *         is already waitlisted. nothing is claimed and no hold is touched when this is thrown.
      * @implSpec should check if the request's session and equipment are available and if so, start a session
      *         with the request while removing the request from this container. if one is unavailable, then wait-lists
      *         the request
+     * @implNote the availability check and the claim of the units are done as one reservation, so there is no gap
+     *         between checking and claiming. units held for the patron are theirs to claim.
      */
-    public void checkOutRequest(Request request) {
+    public void checkOutRequest(Request request) throws RequestFailure {
+        validate(request);
+        checkBanner(request.getBanner());
         WaitlistContainer wc = WaitlistContainer.getInstance();
-        // given a request, determine if the station/equipment of the type is available
-        if (StationContainer.getInstance().isAvailable(request.getStationName()) &&
-            EquipmentContainer.getInstance().isAvailable(request.getEquipmentNames())) {
+        // a waitlisted patron is checked out through their waitlist entry, which keeps any hold placed for them
+        if (wc.isWaitlisted(request.getBanner())) {
+            throw new RequestFailure("Patron is already waitlisted: " + request.getBanner());
+        }
+        // given a request, attempt to claim the station/equipment of the type in one transaction
+        Optional<Reservation> reservation = tryReserve(request.getBanner(),
+                                                       request.getStationName(),
+                                                       request.getEquipmentQuantities());
+        if (reservation.isPresent()) {
             // if available, then start a session with the request
-            SessionContainer.getInstance().startSession(request);
-            //attempt to remove the request if it exists in the waitlist already
-            wc.getWaitlistedRequest(request.getBanner()).ifPresent(wc::removeFromWaitlist);
+            SessionContainer.getInstance().startSession(request, reservation.get());
         } else {
             wc.addToWaitlist(request);
         }
@@ -85,12 +121,15 @@ public class RequestContainer {
      * @implNote shows an alert if the request is still waiting on a station or equipment as the `accept` button
      *         hasn't been made to dynamically be disabled yet.
      */
-    public void checkOutWaitlist(Waitlist waitlist) {
-        if (StationContainer.getInstance().isAvailable(waitlist.getStationName()) &&
-            EquipmentContainer.getInstance().isAvailable(waitlist.getEquipmentNames())) {
+    public void checkOutWaitlist(Waitlist waitlist) throws RequestFailure {
+        checkBanner(waitlist.getBanner());
+        Optional<Reservation> reservation = tryReserve(waitlist.getBanner(),
+                                                       waitlist.getStationName(),
+                                                       waitlist.getEquipmentQuantities());
+        if (reservation.isPresent()) {
 
             // if available, then start a session with the request
-            SessionContainer.getInstance().startSession(waitlist.getRequest());
+            SessionContainer.getInstance().startSession(waitlist.getRequest(), reservation.get());
             WaitlistContainer wc = WaitlistContainer.getInstance();
             wc.getWaitlistedRequest(waitlist.getBanner()).ifPresent(wc::removeFromWaitlist);
         } else {
@@ -101,4 +140,62 @@ public class RequestContainer {
             requestNotReadyAlert.showAndWait();
         }
     }
+
+    /* ************************************ INTERNAL METHODS ******************************************************* */
+
+    /**
+     * Checks that every equipment of a request can be used at the request's station.
+     *
+     * @param request
+     *         the request to validate
+     * @throws RequestFailure
+     *         if an equipment can't be used at the station
+     * @see CompatibilityMatrix#isCompatible(String, String)
+     */
+    private static void validate(Request request) throws RequestFailure {
+        CompatibilityMatrix compatibility = StationContainer.getInstance().getCompatibility();
+        for (String equipmentName : request.getEquipmentNames()) {
+            if (!compatibility.isCompatible(request.getStationName(), equipmentName)) {
+                throw new RequestFailure(String.format("%s can't be used at %s",
+                                                       equipmentName,
+                                                       request.getStationName()));
+            }
+        }
+    }
+
+    /**
+     * Checks that a patron doesn't already have a session, before any units are claimed for them.
+     *
+     * @param banner
+     *         the banner id of the patron
+     * @throws RequestFailure
+     *         if the patron already has a session
+     * @see SessionContainer#hasSession(int)
+     */
+    private static void checkBanner(int banner) throws RequestFailure {
+        if (SessionContainer.getInstance().hasSession(banner)) {
+            throw new RequestFailure("Patron already has a session: " + banner);
+        }
+    }
+
+    /**
+     * Attempts to claim the units of a request for a patron. Any units held for the patron are given back right before
+     * the claim, and since nothing else can run in between, the patron is the one who gets them.
+     *
+     * @param banner
+     *         the banner id of the patron
+     * @param stationName
+     *         the name of the station to claim a unit of
+     * @param equipmentQuantities
+     *         the names of the equipment mapped to the number of units to claim of each
+     * @return the reservation holding the claimed units, or empty if any of the units are unavailable
+     *
+     * @see HoldContainer#takeHold(int)
+     */
+    private static Optional<Reservation> tryReserve(int banner,
+                                                    String stationName,
+                                                    Map<String, Integer> equipmentQuantities) {
+        HoldContainer.getInstance().takeHold(banner).ifPresent(Reservation::release);
+        return Reservation.tryReserve(stationName, equipmentQuantities);
+    }
 }
@@ -0,0 +1,144 @@
+package app.container;
+
+import app.util.exception.RequestFailure;
+
+import java.util.*;
+
+/**
+ * A reservation is a record of the exact station and equipment units that were claimed for a single request. The units
+ * of a reservation are claimed as a single all-or-nothing transaction and are released together, so a check-out can
+ * never leave part of its units marked as unavailable.
+ * <p>
+ * Reservations are created by {@link #tryReserve(String, Map)} or {@link #reserve(String, Map)} and should be handed
+ * back through {@link #release()} when the units are no longer in use.
+ *
+ * @see AvailabilityWatcher#claimUnits(int)
+ * @see AvailabilityWatcher#releaseUnit(int)
+ */
+public class Reservation {
+    private final AvailabilityWatcher[] watchers;
+    private final int[]                 units;
+    private       int                   size;
+    private       boolean               released;
+
+    private Reservation(int capacity) {
+        this.watchers = new AvailabilityWatcher[capacity];
+        this.units = new int[capacity];
+    }
+
+    /* ****************************************** EXTERNAL API ***************************************************** */
+
+    /**
+     * Attempts to claim one unit of the station and a number of units of each equipment name as a single transaction.
+     * Nothing is claimed unless every unit can be claimed.
+     *
+     * @param stationName
+     *         the name of the station to claim a unit of
+     * @param equipmentQuantities
+     *         the names of the equipment mapped to the number of units to claim of each
+     * @return the reservation holding the claimed units, or empty if any of the units are unavailable
+     *
+     * @throws NoSuchElementException
+     *         if the station or an equipment does not exist
+     * @throws RequestFailure
+     *         if a unit failed to be claimed after the availability check. all claimed units are rolled back.
+     */
+    static Optional<Reservation> tryReserve(String stationName, Map<String, Integer> equipmentQuantities)
+            throws NoSuchElementException, RequestFailure {
+        Map<AvailabilityWatcher, Integer> demand = new LinkedHashMap<>();
+        demand.put(StationContainer.getInstance().getWatcherByName(stationName), 1);
+        int capacity = 1;
+        for (Map.Entry<String, Integer> entry : equipmentQuantities.entrySet()) {
+            demand.merge(EquipmentContainer.getInstance().getWatcherByName(entry.getKey()),
+                         entry.getValue(),
+                         Integer::sum);
+            capacity += entry.getValue();
+        }
+
+        // check the whole demand up front, so a request that cannot be fulfilled never touches a unit
+        for (Map.Entry<AvailabilityWatcher, Integer> entry : demand.entrySet()) {
+            if (entry.getValue() > entry.getKey().getCurrentAvailable()) return Optional.empty();
+        }
+
+        Reservation reservation = new Reservation(capacity);
+        try {
+            demand.forEach(reservation::claim);
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw new RequestFailure("Reservation was rolled back. " + e.getMessage(), e);
+        }
+        return Optional.of(reservation);
+    }
+
+    /**
+     * Claims one unit of the station and a number of units of each equipment name as a single transaction.
+     *
+     * @param stationName
+     *         the name of the station to claim a unit of
+     * @param equipmentQuantities
+     *         the names of the equipment mapped to the number of units to claim of each
+     * @return the reservation holding the claimed units
+     *
+     * @throws RequestFailure
+     *         if any of the units could not be claimed. nothing is left claimed when this is thrown.
+     * @see #tryReserve(String, Map)
+     */
+    static Reservation reserve(String stationName, Map<String, Integer> equipmentQuantities) throws RequestFailure {
+        try {
+            return tryReserve(stationName, equipmentQuantities).orElseThrow(
+                    () -> new RequestFailure("Station or Equipment is not available at this time."));
+        } catch (NoSuchElementException e) {
+            throw new RequestFailure(e);
+        }
+    }
+
+    /**
+     * Releases every unit held by this reservation. Releasing is done once; any later call is ignored so a reservation
+     * cannot free units it no longer owns.
+     *
+     * @throws RequestFailure
+     *         if a unit could not be released. the remaining units are still released.
+     */
+    void release() throws RequestFailure {
+        if (released) return;
+        released = true;
+
+        RuntimeException failure = null;
+        for (int i = size - 1; i >= 0; i--) {
+            try {
+                watchers[i].releaseUnit(units[i]);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) throw new RequestFailure("Reservation couldn't be fully released. " + failure.getMessage(),
+                                                      failure);
+    }
+
+    /**
+     * @return true if the units of this reservation were handed back
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    /**
+     * Claims a number of units of a watcher in one operation and records them in this reservation.
+     *
+     * @param watcher
+     *         the watcher to claim units from
+     * @param count
+     *         the number of units to claim
+     * @throws NoSuchElementException
+     *         if the watcher has fewer than `count` available units
+     */
+    private void claim(AvailabilityWatcher watcher, int count) throws NoSuchElementException {
+        for (int unit : watcher.claimUnits(count)) {
+            units[size] = unit;
+            watchers[size] = watcher;
+            size++;
+        }
+    }
+}
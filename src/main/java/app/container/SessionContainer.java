@@ -2,16 +2,24 @@ package app.container;
 
 import app.model.Request;
 import app.model.Session;
+import app.util.collection.IndexedMinHeap;
+import app.util.collection.MovableObservableList;
 import app.util.exception.RequestFailure;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
+import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
-import java.util.Comparator;
-import java.util.List;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * This container class is designed to act as an API for creating and managing Session objects in order to maintain a
@@ -23,7 +31,17 @@ import java.util.stream.Collectors;
 public class SessionContainer {
     private static SessionContainer instance = null;
 
-    private final ObservableList<Session> sessions = FXCollections.observableArrayList();
+    private final MovableObservableList<Session> sessions     = new MovableObservableList<>(); // by end time
+    private final Map<Session, Reservation>      reservations = new HashMap<>();
+    private final Map<Integer, Session>          byBanner     = new HashMap<>();
+
+    // station name -> sessions at that station, and equipment name -> sessions using that equipment
+    private final Map<String, Set<Session>> byStation   = new HashMap<>();
+    private final Map<String, Set<Session>> byEquipment = new HashMap<>();
+
+    // station or equipment name -> end times of the sessions holding a unit of it, and how many units they hold
+    private final Map<String, IndexedMinHeap<Session>> endTimesByName = new HashMap<>();
+    private final Map<String, Integer>                 heldByName     = new HashMap<>();
 
 
     /**
@@ -63,11 +81,54 @@ public class SessionContainer {
         return FXCollections.unmodifiableObservableList(sessions);
     }
 
+    /**
+     * Gets the session of a patron. The lookup is done through a banner index instead of searching the sessions list.
+     *
+     * @param BannerID
+     *         the banner id of the patron
+     * @return the patron's session
+     *
+     * @throws NoSuchElementException
+     *         if the patron has no session
+     */
     public Session getSession(int BannerID) throws NoSuchElementException {
-        return sessions.stream()
-                       .filter(session -> session.getBanner() == BannerID)
-                       .findFirst()
-                       .orElseThrow(NoSuchElementException::new);
+        Session session = byBanner.get(BannerID);
+        if (session == null) throw new NoSuchElementException(String.valueOf(BannerID));
+        return session;
+    }
+
+    /**
+     * @param bannerID
+     *         the banner id of a patron
+     * @return true if the patron has a session
+     */
+    public boolean hasSession(int bannerID) {
+        return byBanner.containsKey(bannerID);
+    }
+
+    /**
+     * Gets the sessions at a station, such as to find who is on a given TV. The lookup is done through a station index
+     * instead of searching the sessions list.
+     *
+     * @param stationName
+     *         the name of the station
+     * @return an unmodifiable set of the sessions at the station, in the order they started. empty if there are none.
+     */
+    public Set<Session> getSessionsByStation(String stationName) {
+        return unmodifiableSessions(byStation, stationName);
+    }
+
+    /**
+     * Gets the sessions using an equipment, such as to find who has a given title. The lookup is done through an
+     * equipment index instead of searching the sessions list.
+     *
+     * @param equipmentName
+     *         the name of the equipment
+     * @return an unmodifiable set of the sessions using the equipment, in the order they started. empty if there are
+     *         none.
+     */
+    public Set<Session> getSessionsByEquipment(String equipmentName) {
+        return unmodifiableSessions(byEquipment, equipmentName);
     }
 
     /**
@@ -93,20 +154,38 @@ public class SessionContainer {
      *         the request to base the session information on.
      * @throws RequestFailure
      *         if the station or equipment cannot be made unavailable at the time of the request.
+     * @see #startSession(Request, Reservation)
      */
     void startSession(Request request) throws RequestFailure {
-        boolean refreshable = !WaitlistContainer.getInstance().hasWaitListedRequest(request.getStationName());
-        Session newSession  = Session.initSession(request, refreshable);
+        startSession(request, Reservation.reserve(request.getStationName(), request.getEquipmentQuantities()));
+    }
 
-        try {
-            // todo - make sure the request methods can roll back changes if an issue was caught.
-            StationContainer.getInstance().requestSetAvail(newSession.getStationName(), false);
-            EquipmentContainer.getInstance().requestSetAvail(newSession.getEquipmentNames(), false);
-        } catch (RuntimeException e) {
-            throw new RequestFailure("Station or Equipment couldn't be made unavailable. " + e.getMessage(), e);
+    /**
+     * API method for starting a new session with units that were already claimed for the request. The session takes
+     * ownership of the reservation and releases it when the session is checked in.
+     *
+     * @param request
+     *         the request to base the session information on.
+     * @param reservation
+     *         the claimed station and equipment units of the request
+     * @throws RequestFailure
+     *         if the patron already has a session. the reservation is released when this is thrown.
+     * @see Reservation#tryReserve(String, Map)
+     */
+    void startSession(Request request, Reservation reservation) throws RequestFailure {
+        if (byBanner.containsKey(request.getBanner())) {
+            reservation.release();
+            throw new RequestFailure("Patron already has a session: " + request.getBanner());
         }
+        boolean refreshable = !WaitlistContainer.getInstance().hasWaitListedRequest(request.getStationName());
+        Session newSession  = Session.initSession(request, refreshable);
 
-        sessions.add(newSession);        
+        reservations.put(newSession, reservation);
+        byBanner.put(newSession.getBanner(), newSession);
+        indexSession(newSession);
+        putEndTimes(newSession);
+        scheduleTimeUp(newSession);
+        sessions.add(insertionPoint(newSession.getTimer(), -1), newSession);
     }
 
     /**
@@ -115,26 +194,69 @@ public class SessionContainer {
      *
      * @param session
      *         the session that is to be checked in
+     * @throws RequestFailure
+     *         if the session is not checked out or its station and equipment couldn't be made available again. in the
+     *         latter case the session stays checked out, so the check in can be retried.
+     * @see #checkInSessions(Collection)
      */
-    public void checkInSession(Session session) {
-        try {
-            // todo - make sure the request methods can roll back changes if an issue was caught.
-            StationContainer.getInstance().requestSetAvail(session.getStationName(), true);
-            EquipmentContainer.getInstance().requestSetAvail(session.getEquipmentNames(), true);
-            
-        } catch (RuntimeException e) {
-            throw new RequestFailure("Station or Equipment couldn't be made unavailable. " + e.getMessage(), e);
+    public void checkInSession(Session session) throws RequestFailure {
+        if (!reservations.containsKey(session)) {
+            throw new RequestFailure("Session is not checked out: " + session.getName());
         }
+        checkInSessions(Collections.singleton(session));
+    }
+
+    /**
+     * API method for checking in many sessions at once, such as when closing for the night. The units of every session
+     * are released first and then all of the sessions are removed from the sessions list as a single change, so
+     * listeners of the list, like the waitlist's estimates, update once instead of once per session.
+     *
+     * @param toCheckIn
+     *         the sessions to check in. sessions that are not checked out are skipped.
+     * @return the number of sessions that were checked in
+     *
+     * @throws RequestFailure
+     *         if the units of a session couldn't be made available again. that session is left checked out, and the
+     *         sessions checked in before it are still removed.
+     */
+    public int checkInSessions(Collection<Session> toCheckIn) throws RequestFailure {
+        Set<Session> checkedIn = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            for (Session session : toCheckIn) {
+                Reservation reservation = reservations.get(session);
+                if (reservation == null) continue;
 
-        sessions.remove(session);
-       
+                reservation.release();
+                reservations.remove(session);
+                dropFromIndexes(session);
+                checkedIn.add(session);
+            }
+        } finally {
+            sessions.removeAll(checkedIn);
+        }
         // todo - possible logging of report data
+        return checkedIn.size();
+    }
+
+    /**
+     * API method for checking in every session, for the end of the night close-out.
+     *
+     * @return the number of sessions that were checked in
+     *
+     * @throws RequestFailure
+     *         if the units of a session couldn't be made available again
+     * @see #checkInSessions(Collection)
+     */
+    public int checkInAllSessions() throws RequestFailure {
+        return checkInSessions(new ArrayList<>(sessions));
     }
 
     /**
      * Helper method for refreshing the time allotted to a session.
      * <p>
-     * This method was created for the `refresh` button of the session table view of the HomeController.
+     * This method was created for the `refresh` button of the session table view of the HomeController. The sessions
+     * list is kept in end time order, so only the refreshed session is moved to its new place, which listeners see as
+     * a single permutation.
      *
      * @param session
      *         the session to refresh the timer of
@@ -148,49 +270,210 @@ public class SessionContainer {
             requestNotReadyAlert.showAndWait();
             return;
         }
+        int from = positionOf(session);
         session.refreshTimer();
-        sessions.sort(Comparator.comparingInt(Session::getTimer));
+        putEndTimes(session);
+        scheduleTimeUp(session);
+        if (from >= 0) sessions.move(from, insertionPoint(session.getTimer(), from));
         // todo - possible logging of report data
     }
 
     /**
-     * Helper method for updating the refreshable property.
+     * Forecasts when a unit of a station or equipment will be free, based on the end times of the sessions holding it.
+     * Asking for the n'th unit gives the end time of the session that frees the n'th soonest unit, where a session
+     * holding several units frees all of them at its end; if fewer units are held, the time is extended by a default
+     * session length for each unit past the last one.
      * <p>
-     * This method was created for the HomeController listener
+     * The end times are kept in a heap per name, so a forecast only looks at the soonest sessions of that name. Finding
+     * the n'th unit costs O(n log n) and does not depend on how many sessions hold the name; n is a position in a
+     * waitlist, which stays small, so this is cheaper in practice than keeping an order-statistic tree per name.
+     *
+     * @param nameOfRequestable
+     *         the name of the station or equipment
+     * @param indexOfSession
+     *         the zero-based position of the unit, from the soonest to be free to the latest
+     * @return the forecasted time, in seconds of the day, that the unit will be free
      */
-    public void requestRefreshableUpdate() {
-        java.util.Set<String> stations = new java.util.HashSet<>();
+    public int forecastAvailableTime(String nameOfRequestable, int indexOfSession) {
+        IndexedMinHeap<Session> endTimes = endTimesByName.get(nameOfRequestable);
+        int                     held     = heldByName.getOrDefault(nameOfRequestable, 0);
+        if (held == 0) {
+            return LocalTime.now().toSecondOfDay() +
+                   indexOfSession * (int) Session.DEFAULT_START_MINUTES.get(ChronoUnit.SECONDS);
+        }
 
-        // obtain a set of the names of all the stations being waited on
-        WaitlistContainer.getInstance()
-                         .getWaitListedRequests()
-                         .forEach(request -> stations.add(request.getStationName()));
-        // set session's refreshable to if a session's station is not being waited on
-        getSessions().forEach(s -> s.refreshableProperty().setValue(!stations.contains(s.getStationName())));
+        int timer = endTimes.kthSmallestKey(Math.min(indexOfSession, held - 1),
+                                            session -> unitsHeld(session, nameOfRequestable));
+        if (indexOfSession >= held) {
+            timer += (indexOfSession + 1 - held) * Session.DEFAULT_START_MINUTES.get(ChronoUnit.SECONDS);
+        }
+        return timer;
     }
 
     /* ****************************************** INTERNAL METHODS ************************************************* */
 
     /**
-     * Helper method that supplies a timer based on the n'th session of a given station or equipment. This method was
-     * created to help calculate waitlist times.
+     * Sets the refreshable property of only the sessions at a station.
      *
-     * @param nameOfRequestable
-     *         the requestable to filter the sessions by
-     * @param indexOfSession
-     *         the position within the interval of sessions, from the shortest timer to the longest timer.
-     * @return the timer of a session that would be the n'th soonest position out of the given station or equipment.
-     */
-    int getSessionTimer(String nameOfRequestable, int indexOfSession) {
-        List<Session> sublist = sessions.stream()
-                                        .filter(s -> s.getStationName().equals(nameOfRequestable) ||
-                                                     s.getEquipmentNames().contains(nameOfRequestable))
-                                        .sorted(Comparator.comparingInt(Session::getTimer))
-                                        .collect(Collectors.toList());
-        int timer = sublist.get((indexOfSession < sublist.size()) ? indexOfSession : sublist.size() - 1).getTimer();
-        if (indexOfSession >= sublist.size()) {
-            timer += (indexOfSession + 1 - sublist.size())*Session.DEFAULT_START_MINUTES.get(ChronoUnit.SECONDS);
+     * @param stationName
+     *         the name of the station
+     * @param refreshable
+     *         true if the sessions' timers may be refreshed
+     */
+    void setRefreshable(String stationName, boolean refreshable) {
+        Set<Session> atStation = byStation.get(stationName);
+        if (atStation != null) atStation.forEach(s -> s.refreshableProperty().setValue(refreshable));
+    }
+
+    /**
+     * Finds a session in the sessions list by a binary search of its end time.
+     *
+     * @param session
+     *         the session to find, with the end time it is ordered by
+     * @return the position of the session, or -1 if it is not in the list
+     */
+    private int positionOf(Session session) {
+        for (int i = insertionPoint(session.getTimer() - 1, -1); i < sessions.size(); i++) {
+            if (sessions.get(i) == session) return i;
+            if (sessions.get(i).getTimer() != session.getTimer()) break;
         }
-        return timer;
+        return -1;
+    }
+
+    /**
+     * Finds where a session with the given end time belongs in the sessions list, after any sessions that end at the
+     * same time.
+     *
+     * @param timer
+     *         the end time, in seconds of the day
+     * @param skip
+     *         the position of a session to leave out of the search, such as the session being moved. -1 for none.
+     * @return the position to insert at, counted as if the skipped session was taken out of the list
+     */
+    private int insertionPoint(int timer, int skip) {
+        int low  = 0;
+        int high = sessions.size() - ((skip < 0) ? 0 : 1);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int index  = (skip >= 0 && middle >= skip) ? middle + 1 : middle;
+            if (sessions.get(index).getTimer() <= timer) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Schedules the notice that a session's time is up for its current end time.
+     *
+     * @param session
+     *         the session that started or was refreshed
+     */
+    private static void scheduleTimeUp(Session session) {
+        DeadlineScheduler.getInstance().schedule(session, session.getTimer(), () -> NoticeContainer.getInstance()
+                .createNotice(session.getTimeUpNoticeString()));
+    }
+
+    /**
+     * Drops a session that was checked in from the banner, station, equipment and end time indexes, and cancels its
+     * time up notice.
+     *
+     * @param session
+     *         the session that ended
+     */
+    private void dropFromIndexes(Session session) {
+        byBanner.remove(session.getBanner(), session);
+        unindexSession(session);
+        removeEndTimes(session);
+        DeadlineScheduler.getInstance().cancel(session);
+    }
+
+    /**
+     * Puts the session under its station and each of its equipment in the reverse indexes.
+     *
+     * @param session
+     *         the session that started
+     */
+    private void indexSession(Session session) {
+        byStation.computeIfAbsent(session.getStationName(), n -> new LinkedHashSet<>()).add(session);
+        for (String equipmentName : session.getEquipmentNames()) {
+            byEquipment.computeIfAbsent(equipmentName, n -> new LinkedHashSet<>()).add(session);
+        }
+    }
+
+    /**
+     * Drops the session from the reverse indexes, along with any name left without sessions.
+     *
+     * @param session
+     *         the session that ended
+     */
+    private void unindexSession(Session session) {
+        unindex(byStation, session.getStationName(), session);
+        for (String equipmentName : session.getEquipmentNames()) {
+            unindex(byEquipment, equipmentName, session);
+        }
+    }
+
+    private static void unindex(Map<String, Set<Session>> index, String name, Session session) {
+        Set<Session> indexed = index.get(name);
+        if (indexed != null && indexed.remove(session) && indexed.isEmpty()) index.remove(name);
+    }
+
+    private static Set<Session> unmodifiableSessions(Map<String, Set<Session>> index, String name) {
+        Set<Session> indexed = index.get(name);
+        return (indexed == null) ? Collections.emptySet() : Collections.unmodifiableSet(indexed);
+    }
+
+    /**
+     * Puts the session's current end time into the heap of its station and of each of its equipment.
+     *
+     * @param session
+     *         the session that started or had its timer changed
+     */
+    private void putEndTimes(Session session) {
+        for (String name : namesOf(session)) {
+            IndexedMinHeap<Session> endTimes = endTimesByName.computeIfAbsent(name, n -> new IndexedMinHeap<>());
+            if (!endTimes.contains(session)) heldByName.merge(name, unitsHeld(session, name), Integer::sum);
+            endTimes.put(session, session.getTimer());
+        }
+    }
+
+    /**
+     * Removes the session from the heap of its station and of each of its equipment.
+     *
+     * @param session
+     *         the session that ended
+     */
+    private void removeEndTimes(Session session) {
+        for (String name : namesOf(session)) {
+            IndexedMinHeap<Session> endTimes = endTimesByName.get(name);
+            if (endTimes == null || !endTimes.remove(session)) continue;
+            heldByName.merge(name, -unitsHeld(session, name), Integer::sum);
+            if (endTimes.isEmpty()) {
+                endTimesByName.remove(name);
+                heldByName.remove(name);
+            }
+        }
+    }
+
+    /**
+     * @param session
+     *         a session
+     * @param name
+     *         the name of the session's station or one of its equipment
+     * @return the number of units of the name the session holds
+     */
+    private static int unitsHeld(Session session, String name) {
+        return (name.equals(session.getStationName()) ? 1 : 0) + session.getEquipmentQuantity(name);
+    }
+
+    /**
+     * @param session
+     *         a session
+     * @return the distinct names of the session's station and equipment
+     */
+    private static Set<String> namesOf(Session session) {
+        Set<String> names = new LinkedHashSet<>(session.getEquipmentNames());
+        names.add(session.getStationName());
+        return names;
     }
 }
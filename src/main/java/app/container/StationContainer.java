@@ -1,6 +1,5 @@
 package app.container;
 
-import app.model.Requestable;
 import app.model.Station;
 import app.util.io.InventoryConfigAccessor;
 import javafx.collections.FXCollections;
@@ -20,8 +19,10 @@ import java.util.stream.Collectors;
  * @see AvailabilityWatcher
  */
 public class StationContainer extends AvailabilityContainer {
-    private static final Logger                LOGGER = LogManager.getLogger(StationContainer.class);
-    private static       AvailabilityContainer instance;
+    private static final Logger           LOGGER = LogManager.getLogger(StationContainer.class);
+    private static       StationContainer instance;
+
+    private CompatibilityMatrix compatibility;
 
     /**
      * Constructs the session container and creates the listener objects to be used within the class.
@@ -36,15 +37,17 @@ public class StationContainer extends AvailabilityContainer {
      *
      * @implSpec Needs to create an independent and valid construction first and then apply relevant listeners.
      */
-    private static AvailabilityContainer initContainer(InventoryConfigAccessor ica) {
+    private static StationContainer initContainer(InventoryConfigAccessor ica) {
         StationContainer container = new StationContainer();
+        container.compatibility = CompatibilityMatrix.of(ica.getStationMap(), ica.getEquipmentSet());
 
-        container.getWatchers().addAll(ica.getStationMap().entrySet().stream().map(entry -> {
-            ObservableList<Requestable> stations = FXCollections.observableArrayList();
-            for (int i = 0; i < ica.getTotalMap().getOrDefault(entry.getKey(), 0); i++) {
-                stations.add(Station.stationFactory(entry.getKey(), entry.getValue().toArray(new String[0])));
-            }
-            return AvailabilityWatcher.initWatcher(stations, entry.getKey());
+        container.getWatchers().addAll(ica.getStationMap().keySet().stream().map(key -> {
+            // every unit of the station shares one list of equipment names, read from the station's matrix row
+            ObservableList<String> equipable = FXCollections.unmodifiableObservableList(
+                    FXCollections.observableArrayList(container.compatibility.getEquipmentFor(key)));
+            return AvailabilityWatcher.initWatcher(key,
+                                                   ica.getTotalMap().getOrDefault(key, 0),
+                                                   name -> Station.stationFactory(name, equipable));
         }).collect(Collectors.toList()));
         return container;
     }
@@ -55,7 +58,7 @@ public class StationContainer extends AvailabilityContainer {
     /**
      * @return a singleton instance of the container.
      */
-    public static AvailabilityContainer getInstance() {
+    public static StationContainer getInstance() {
         if (instance == null) {
             synchronized (StationContainer.class) {
                 if (instance == null) {
@@ -70,7 +73,7 @@ public class StationContainer extends AvailabilityContainer {
      * @param ica the inventory config accessor for initializing stations with.
      * @return a singleton instance of the container.
      */
-    public static AvailabilityContainer getInstance(InventoryConfigAccessor ica) {
+    public static StationContainer getInstance(InventoryConfigAccessor ica) {
         if (instance == null) {
             synchronized (StationContainer.class) {
                 if (instance == null) {
@@ -80,4 +83,14 @@ public class StationContainer extends AvailabilityContainer {
         }
         return instance;
     }
+
+    /**
+     * Gets the matrix of which equipment can be used at which station, compiled when the stations were loaded. Use it
+     * to validate requests, narrow down equipment choices, or find the stations that can use a title.
+     *
+     * @return the compatibility matrix of the stations
+     */
+    public CompatibilityMatrix getCompatibility() {
+        return compatibility;
+    }
 }
@@ -0,0 +1,103 @@
+package app.container;
+
+/**
+ * A fixed-size ring buffer of availability samples for a single watcher. Each sample records how many units were
+ * available and how many there were in total. Once the buffer is full, each new sample overwrites the oldest one, so the
+ * memory used stays the same no matter how long the application runs.
+ * <p>
+ * Samples are kept in primitive arrays and read back by position, oldest first, so reading a history does not create
+ * any objects.
+ *
+ * @see AvailabilityWatcher#getUtilizationHistory()
+ */
+public class UtilizationHistory {
+    private final int[] available;
+    private final int[] total;
+    private       int   next;  // the slot the next sample is written to
+    private       int   size;
+
+    /**
+     * @param capacity
+     *         the max number of samples kept
+     */
+    UtilizationHistory(int capacity) {
+        this.available = new int[capacity];
+        this.total = new int[capacity];
+    }
+
+    /**
+     * Records a sample, overwriting the oldest one if the buffer is full.
+     *
+     * @param availableAmount
+     *         the number of available units
+     * @param totalAmount
+     *         the total number of units
+     */
+    void record(int availableAmount, int totalAmount) {
+        available[next] = availableAmount;
+        total[next] = totalAmount;
+        next = (next + 1) % available.length;
+        if (size < available.length) size++;
+    }
+
+    /* ****************************************** EXTERNAL API ***************************************************** */
+
+    /**
+     * @return the number of samples recorded, up to the capacity
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the max number of samples kept
+     */
+    public int capacity() {
+        return available.length;
+    }
+
+    /**
+     * @param index
+     *         the position of the sample, 0 being the oldest kept
+     * @return the number of available units at that sample
+     */
+    public int getAvailable(int index) {
+        return available[slotOf(index)];
+    }
+
+    /**
+     * @param index
+     *         the position of the sample, 0 being the oldest kept
+     * @return the total number of units at that sample
+     */
+    public int getTotal(int index) {
+        return total[slotOf(index)];
+    }
+
+    /**
+     * Gets how busy the watcher was at a sample, as the share of units that were in use.
+     *
+     * @param index
+     *         the position of the sample, 0 being the oldest kept
+     * @return a value from 0 (all units available) to 1 (no units available). 0 if there were no units.
+     */
+    public double getUtilization(int index) {
+        int slot = slotOf(index);
+        return (total[slot] == 0) ? 0 : 1 - (double) available[slot] / total[slot];
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    /**
+     * @param index
+     *         the position of the sample, 0 being the oldest kept
+     * @return the array slot of the sample
+     *
+     * @throws IndexOutOfBoundsException
+     *         if there is no sample at the index
+     */
+    private int slotOf(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(String.valueOf(index));
+        return (next - size + index + available.length) % available.length;
+    }
+}
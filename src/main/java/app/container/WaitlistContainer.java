@@ -1,39 +1,63 @@
 package app.container;
 
 import app.model.*;
+import app.util.exception.RequestFailure;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
+import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
 import javafx.util.Pair;
 
 import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.ToIntFunction;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
 
 public class WaitlistContainer {
     private static WaitlistContainer instance = null;
 
-    private final ObservableList<Waitlist>     waitListedRequests = FXCollections.observableArrayList();
-    private final ListChangeListener<Waitlist> waitlistListChangeListener_updateTimer;
-    private final ListChangeListener<Session>  sessionListChangeListener_updateTimer;
-    private final ListChangeListener<Session>  sessionListChangeListener_updateAccept;
+    private final ObservableList<Waitlist>                waitListedRequests = FXCollections.observableArrayList();
+    private final ListChangeListener<Waitlist>            waitlistListChangeListener_updateTimer;
+    private final ListChangeListener<Waitlist>            waitlistListChangeListener_updateSubscriptions;
+    private final ListChangeListener<Waitlist>            waitlistListChangeListener_updateWaiterCounts;
+    private final ListChangeListener<Session>             sessionListChangeListener_updateTimer;
+    private final MapChangeListener<Integer, Reservation> holdMapChangeListener_passOver;
+
+    // the availability subscriptions of each waitlisted request, and the holders whose hold went unclaimed
+    private final Map<Waitlist, List<AvailabilityContainer.Subscription>> subscriptions = new HashMap<>();
+    private final Set<Integer>                                            passedOver    = new HashSet<>();
+    private final Map<Integer, Waitlist>                                  byBanner      = new HashMap<>();
+
+    // station name -> number of waitlisted requests waiting on that station. stations with no waiters are left out.
+    private final Map<String, Integer> waitersByStation = new HashMap<>();
 
     private WaitlistContainer() {
         // update the timers if the waitlist or session list changes
         this.waitlistListChangeListener_updateTimer = this::handleListChangeEvent_UpdateTimers;
         this.sessionListChangeListener_updateTimer = this::handleListChangeEvent_UpdateTimers;
-        this.sessionListChangeListener_updateAccept = this::handleListChangeEvent_UpdateAcceptable;
+        // update the acceptability of a waitlisted request when the station or equipment it waits on changes
+        this.waitlistListChangeListener_updateSubscriptions = this::handleListChangeEvent_UpdateSubscriptions;
+        this.holdMapChangeListener_passOver = this::handleMapChangeEvent_PassOver;
+        // update the refreshability of the sessions at a station when it gains its first or loses its last waiter
+        this.waitlistListChangeListener_updateWaiterCounts = this::handleListChangeEvent_UpdateWaiterCounts;
     }
 
     private static WaitlistContainer initWaitlistContainer() {
         WaitlistContainer waitlistContainer = new WaitlistContainer();
         waitlistContainer.addListChangeListener(waitlistContainer.waitlistListChangeListener_updateTimer);
+        waitlistContainer.addListChangeListener(waitlistContainer.waitlistListChangeListener_updateSubscriptions);
+        waitlistContainer.addListChangeListener(waitlistContainer.waitlistListChangeListener_updateWaiterCounts);
         SessionContainer sessionContainer = SessionContainer.getInstance();
         sessionContainer.addListChangeListener(waitlistContainer.sessionListChangeListener_updateTimer);
-        sessionContainer.addListChangeListener(waitlistContainer.sessionListChangeListener_updateAccept);
+        HoldContainer.getInstance().addMapChangeListener(waitlistContainer.holdMapChangeListener_passOver);
 
         return waitlistContainer;
     }
@@ -62,26 +86,38 @@ public class WaitlistContainer {
     }
 
     /**
-     * Retrieves a wait-listed request object from the collection using a given banner id
+     * Retrieves a wait-listed request object from the collection using a given banner id. The lookup is done through a
+     * banner index instead of searching the waitlist.
      *
      * @param bannerID
      *         the id to match for
-     * @return an optional of the first request that matches the id, empty if does not exist
+     * @return an optional of the request that matches the id, empty if does not exist
      */
     Optional<Waitlist> getWaitlistedRequest(int bannerID) {
-        return waitListedRequests.stream().filter(request -> request.getBanner() == bannerID).findFirst();
+        return Optional.ofNullable(byBanner.get(bannerID));
+    }
+
+    /**
+     * @param bannerID
+     *         the banner id of a patron
+     * @return true if the patron has a request in the waitlist
+     */
+    public boolean isWaitlisted(int bannerID) {
+        return byBanner.containsKey(bannerID);
     }
 
     /**
      * Helper method for removing a request from the waitlist.
      * <p>
-     * This method was created for the `leave` button of the home view waitlist table.
+     * This method was created for the `leave` button of the home view waitlist table. Any units held for the request
+     * are given back.
      *
      * @param waitlistedRequest
      *         the request to remove
      */
     public void removeFromWaitlist(Waitlist waitlistedRequest) {
         waitListedRequests.remove(waitlistedRequest);
+        HoldContainer.getInstance().cancelHold(waitlistedRequest.getBanner());
     }
 
     /**
@@ -104,10 +140,21 @@ public class WaitlistContainer {
      * @return true if a wait-listed request object has the station name, false otherwise
      */
     public boolean hasWaitListedRequest(String stationName) {
-        return waitListedRequests.stream().anyMatch(e -> e.getStationName().equals(stationName));
+        return waitersByStation.containsKey(stationName);
     }
 
-    void addToWaitlist(Request request) {
+    /**
+     * Adds a request to the end of the waitlist.
+     *
+     * @param request
+     *         the request to wait-list
+     * @throws RequestFailure
+     *         if the patron already has a request in the waitlist
+     */
+    void addToWaitlist(Request request) throws RequestFailure {
+        if (isWaitlisted(request.getBanner())) {
+            throw new RequestFailure("Patron is already waitlisted: " + request.getBanner());
+        }
         waitListedRequests.add(Waitlist.initWaitlist(request));
     }
     
@@ -143,24 +190,20 @@ public class WaitlistContainer {
         while (change.next()) {
             if (change.wasAdded() || change.wasRemoved()) {
                 // create a map of stations and equipment to the value of how many are available of that name
-                Map<String, Integer> availMap = StationContainer.getInstance()
-                                                                .getWatchers()
-                                                                .stream()
-                                                                .collect(Collectors.toMap(AvailabilityWatcher::getName,
-                                                                                          AvailabilityWatcher::getCurrentAvailable));
-                availMap.putAll(EquipmentContainer.getInstance()
-                                                  .getWatchers()
-                                                  .stream()
-                                                  .collect(Collectors.toMap(AvailabilityWatcher::getName,
-                                                                            AvailabilityWatcher::getCurrentAvailable)));
+                Map<String, Integer> availMap = new HashMap<>(StationContainer.getInstance()
+                                                                              .snapshot()
+                                                                              .getAvailableMap());
+                availMap.putAll(EquipmentContainer.getInstance().snapshot().getAvailableMap());
 
-                // function to be used to map a requestable to a time integer. Used in the stream below.
-                ToIntFunction<String> estimateWaitTime = (nameOfRequestable) -> {
-                    int numAvail = availMap.get(nameOfRequestable);
-                    availMap.put(nameOfRequestable, numAvail - 1);
-                    return (numAvail > 0)
+                // function to be used to map a number of units of a requestable to a time integer. Used in the
+                // stream below. the wait lasts until the last wanted unit is free, which is `-remaining - 1` units
+                // past the available ones.
+                ToIntBiFunction<String, Integer> estimateWaitTime = (nameOfRequestable, quantity) -> {
+                    int remaining = availMap.get(nameOfRequestable) - quantity;
+                    availMap.put(nameOfRequestable, remaining);
+                    return (remaining >= 0)
                            ? LocalTime.now().toSecondOfDay()
-                           : SessionContainer.getInstance().getSessionTimer(nameOfRequestable, Math.abs(numAvail));
+                           : SessionContainer.getInstance().forecastAvailableTime(nameOfRequestable, -remaining - 1);
                 };
 
                 /* Evaluates an accurate wait time for each waitlisted request, which is done through two passes.
@@ -180,16 +223,18 @@ public class WaitlistContainer {
                  * of polynomial time complexity).
                  */
                 waitListedRequests.stream().map(w -> {
-                    int eqTime = w.getEquipmentNames()
+                    int eqTime = w.getEquipmentQuantities()
+                                  .entrySet()
                                   .stream()
-                                  .mapToInt(estimateWaitTime)
+                                  .mapToInt(e -> estimateWaitTime.applyAsInt(e.getKey(), e.getValue()))
                                   .max()
                                   .orElse(LocalTime.now().toSecondOfDay());
                     return new Pair<>(w, eqTime);
                 }).sorted(Comparator.comparingInt(Pair::getValue)).forEachOrdered(pair -> {
-                    int stationTime = estimateWaitTime.applyAsInt(pair.getKey().getStationName());
+                    int stationTime = estimateWaitTime.applyAsInt(pair.getKey().getStationName(), 1);
                     int resultTimer = Math.max(stationTime, pair.getValue());
                     pair.getKey().timerProperty().setValue(resultTimer);
+                    DeadlineScheduler.getInstance().reschedule(pair.getKey(), resultTimer);
                 });
                 break;
             }
@@ -200,64 +245,131 @@ public class WaitlistContainer {
      * Handler method that implements the {@link ListChangeListener}'s functional interface. Used as and treated as a
      * valid ListChangeListener.
      * <p>
-     * This Listener is notified if the observable list changed. On change, update the acceptable property of waitlisted
-     * requests. This listener was created for dynamically disabling the `accept` button for requests that could not be
-     * checked out yet.
+     * This Listener is notified if the waitlist changed. Each added request subscribes to the station and equipment it
+     * waits on, so its acceptable property is only updated when one of those names changes, and a removed request's
+     * subscriptions are dropped. This listener was created for dynamically disabling the `accept` button for requests
+     * that could not be checked out yet. The banner index and the time up notice of a request are kept up here as well.
      * <p>
      * Developers should not call this method, but rather supply this class's field that contains this method's
      * reference to a desired {@link ObservableList#addListener(ListChangeListener)}.
      *
      * @param change
      *         the Change object that describes all the changes to the list since the last call.
-     * @param <S>
-     *         Type extends Session
-     * @implNote this handler is designed to lazy load values in order to avoid unnecessary computation
      * @see Waitlist#acceptableProperty()
+     * @see AvailabilityContainer#subscribe(java.util.Collection, Consumer)
      */
-    private <S extends Session> void handleListChangeEvent_UpdateAcceptable(ListChangeListener.Change<S> change) {
-        // for each change, get the station/Equipable name of the requests and update the acceptability of waitlisted requests that match accordingly
-        while (!this.waitListedRequests.isEmpty() && change.next()) {
-            if (change.wasAdded() || change.wasRemoved()) {
-                // there should only be a single session in here, but this is safer handling. Values are found lazily.
-                java.util.List<S> sessions = change.wasAdded() ? change.getAddedSubList() : change.getRemoved();
-
-                java.util.HashMap<String, Boolean> stations = new java.util.HashMap<>();
-                java.util.HashMap<String, Boolean> equips   = new java.util.HashMap<>();
+    private void handleListChangeEvent_UpdateSubscriptions(ListChangeListener.Change<? extends Waitlist> change) {
+        while (change.next()) {
+            if (change.wasPermutated()) continue;
+            for (Waitlist removed : change.getRemoved()) {
+                List<AvailabilityContainer.Subscription> subscribed = subscriptions.remove(removed);
+                if (subscribed != null) subscribed.forEach(AvailabilityContainer.Subscription::unsubscribe);
+                passedOver.remove(removed.getBanner());
+                byBanner.remove(removed.getBanner(), removed);
+                DeadlineScheduler.getInstance().cancel(removed);
+            }
+            for (Waitlist added : change.getAddedSubList()) {
+                byBanner.put(added.getBanner(), added);
+                DeadlineScheduler.getInstance().schedule(added, added.getTimer(), () -> NoticeContainer.getInstance()
+                        .createNotice(added.getTimeUpNoticeString()));
+                // requests subscribe in queue order, so the front of the queue is called first when a unit frees up
+                Consumer<AvailabilityWatcher> callback = watcher -> updateAcceptable(Collections.singletonList(added));
+                subscriptions.put(added, Arrays.asList(
+                        StationContainer.getInstance().subscribe(Collections.singleton(added.getStationName()),
+                                                                 callback),
+                        EquipmentContainer.getInstance().subscribe(added.getEquipmentNames(), callback)));
+            }
+        }
+    }
 
-                // populate the maps with names of the sessions
-                sessions.forEach(s -> {
-                    stations.put(s.getStationName(), null);
-                    s.getEquipmentNames().forEach(e -> equips.put(e, null));
-                });
+    /**
+     * Handler method that implements the {@link ListChangeListener}'s functional interface. Used as and treated as a
+     * valid ListChangeListener.
+     * <p>
+     * This Listener is notified if the waitlist changed. It counts the requests waiting on each station, and when a
+     * station gets its first waiter or loses its last one, only the sessions at that station have their refreshable
+     * property changed.
+     * <p>
+     * Developers should not call this method, but rather supply this class's field that contains this method's
+     * reference to a desired {@link ObservableList#addListener(ListChangeListener)}.
+     *
+     * @param change
+     *         the Change object that describes all the changes to the list since the last call.
+     * @see Session#refreshableProperty()
+     */
+    private void handleListChangeEvent_UpdateWaiterCounts(ListChangeListener.Change<? extends Waitlist> change) {
+        SessionContainer sessionContainer = SessionContainer.getInstance();
+        while (change.next()) {
+            if (change.wasPermutated() || change.wasUpdated()) continue;
+            for (Waitlist removed : change.getRemoved()) {
+                String stationName = removed.getStationName();
+                if (waitersByStation.merge(stationName, -1, Integer::sum) == 0) {
+                    waitersByStation.remove(stationName);
+                    sessionContainer.setRefreshable(stationName, true);
+                }
+            }
+            for (Waitlist added : change.getAddedSubList()) {
+                String stationName = added.getStationName();
+                if (waitersByStation.merge(stationName, 1, Integer::sum) == 1) {
+                    sessionContainer.setRefreshable(stationName, false);
+                }
+            }
+        }
+    }
 
-                // operate only on waitlisted requests that are associated with the sessions
-                this.getWaitListedRequests()
-                    .stream()
-                    .filter(w -> stations.keySet().contains(w.getStationName()) &&
-                                 equips.keySet().containsAll(w.getEquipmentNames()))
-                    .forEach(w -> {
-                        // lazy-compute the availability of this waitlist request
-                        boolean result;
+    /**
+     * Handler method that implements the {@link MapChangeListener}'s functional interface. Used as and treated as a
+     * valid MapChangeListener.
+     * <p>
+     * This Listener is notified if a hold was taken, cancelled or expired. If the holder is still waiting, their hold
+     * went unclaimed, so they are passed over and no further hold is placed for them. Any units the hold gave back
+     * reach the rest of the waitlist through their subscriptions.
+     * <p>
+     * Developers should not call this method, but rather supply this class's field that contains this method's
+     * reference to a desired {@link javafx.collections.ObservableMap#addListener(MapChangeListener)}.
+     *
+     * @param change
+     *         the Change object that describes the change to the holds
+     */
+    private void handleMapChangeEvent_PassOver(
+            MapChangeListener.Change<? extends Integer, ? extends Reservation> change) {
+        if (!change.wasRemoved() || change.wasAdded()) return;
 
-                        // find the result of the availability of the station. compute and save value only if absent.
-                        if (stations.get(w.getStationName()) == null) {
-                            stations.put(w.getStationName(),
-                                         StationContainer.getInstance().isAvailable(w.getStationName()));
-                        }
-                        result = stations.get(w.getStationName());
+        getWaitlistedRequest(change.getKey()).ifPresent(w -> {
+            passedOver.add(w.getBanner());
+            w.setAcceptable(false);
+        });
+    }
 
-                        // find the result of the availability of the equipment and combine it with result so far.
-                        w.getEquipmentNames().forEach(e_name -> {
-                            // compute and save the value only if absent.
-                            if (equips.get(e_name) == null)
-                                equips.put(e_name, EquipmentContainer.getInstance().isAvailable(e_name));
-                        });
-                        result = result && equips.values().stream().reduce(Boolean.TRUE, Boolean::logicalAnd);
+    /**
+     * Offers holds to the given waitlisted requests and then updates their acceptable property. Holds are offered in
+     * queue order, so the front of the queue claims freed units before the requests behind it. A request that was
+     * passed over is not offered a hold.
+     *
+     * @param affected
+     *         the waitlisted requests to update, in queue order
+     * @see HoldContainer#placeHold(int, String, Map)
+     */
+    private void updateAcceptable(List<Waitlist> affected) {
+        if (affected.isEmpty()) return;
 
-                        w.acceptableProperty().setValue(result);
-                    });
-                break;
+        HoldContainer holdContainer = HoldContainer.getInstance();
+        Set<String>   stations      = new HashSet<>();
+        Set<String>   equips        = new HashSet<>();
+        for (Waitlist w : affected) {
+            if (!passedOver.contains(w.getBanner())) {
+                holdContainer.placeHold(w.getBanner(), w.getStationName(), w.getEquipmentQuantities());
             }
+            stations.add(w.getStationName());
+            equips.addAll(w.getEquipmentNames());
         }
+
+        // take a single snapshot of each container for the whole set of affected requests
+        AvailabilitySnapshot stationSnapshot = StationContainer.getInstance().snapshot(stations);
+        AvailabilitySnapshot equipSnapshot   = EquipmentContainer.getInstance().snapshot(equips);
+        affected.forEach(w -> w.acceptableProperty()
+                               .setValue(holdContainer.hasHold(w.getBanner()) ||
+                                         (stationSnapshot.isAvailable(w.getStationName()) &&
+                                          equipSnapshot.isAvailable(w.getEquipmentQuantities()))));
     }
 }
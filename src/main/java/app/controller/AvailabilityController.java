@@ -1,32 +1,77 @@
 package app.controller;
 
 import app.container.*;
+import app.container.AvailabilityContainer.WatcherView;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
+import javafx.scene.shape.Polyline;
 
 
 public class AvailabilityController extends TrayViewLifecycleStrategy {
     static private final ViewStrategy.TrayViewConfigStrategy viewConfigStrategy = ViewStrategy.PURE_TRAY_VIEWS.AVAILABILITY;
+    static private final double                              SPARKLINE_WIDTH    = 80;
+    static private final double                              SPARKLINE_HEIGHT   = 16;
 
     @FXML private VBox      rootNode;
     @FXML private ImageView ivLogo;
 
     @FXML private TableView<AvailabilityWatcher>           tvStationsAvailability;
     @FXML private TableColumn<AvailabilityWatcher, String> tcStationName, tcStationAmount, tcStationAvailability;
+    @FXML private TableColumn<AvailabilityWatcher, AvailabilityWatcher> tcStationUsage;
 
     @FXML private TableView<AvailabilityWatcher>           tvEquipAvailability;
     @FXML private TableColumn<AvailabilityWatcher, String> tcEquipName, tcEquipAmount, tcEquipAvailability;
+    @FXML private TableColumn<AvailabilityWatcher, AvailabilityWatcher> tcEquipUsage;
+
+    private final InvalidationListener stationSampleListener = observable -> tvStationsAvailability.refresh();
+    private final InvalidationListener equipSampleListener   = observable -> tvEquipAvailability.refresh();
 
     @FXML
     private void initialize() {
-        tvStationsAvailability.setItems(StationContainer.getInstance().getWatchers().sorted());
-        tvEquipAvailability.setItems(EquipmentContainer.getInstance().getWatchers().sorted());
+        tvStationsAvailability.setItems(StationContainer.getInstance().getView(WatcherView.BY_NAME));
+        tvEquipAvailability.setItems(EquipmentContainer.getInstance().getView(WatcherView.BY_NAME));
         initAvailTable(tcStationName, tcStationAmount, tcStationAvailability);
         initAvailTable(tcEquipName, tcEquipAmount, tcEquipAvailability);
+        initUsageColumn(tcStationUsage);
+        initUsageColumn(tcEquipUsage);
+
+        // redraw the sparklines whenever the containers take a new utilization sample
+        StationContainer.getInstance().sampleCountProperty().addListener(stationSampleListener);
+        EquipmentContainer.getInstance().sampleCountProperty().addListener(equipSampleListener);
+    }
+
+    /**
+     * initialize a column that draws a sparkline of the watcher's recent utilization.
+     */
+    private <W extends AvailabilityWatcher> void initUsageColumn(TableColumn<W, W> tcUsage) {
+        tcUsage.setCellValueFactory(e -> new ReadOnlyObjectWrapper<>(e.getValue()));
+        tcUsage.setCellFactory(param -> new TableCell<W, W>() {
+            final Polyline sparkline = new Polyline();
+
+            @Override
+            protected void updateItem(W watcher, boolean empty) {
+                super.updateItem(watcher, empty);
+                if (empty || watcher == null || watcher.getUtilizationHistory().size() == 0) {
+                    setGraphic(null);
+                } else {
+                    UtilizationHistory history = watcher.getUtilizationHistory();
+                    double             step    = SPARKLINE_WIDTH / Math.max(1, history.capacity() - 1);
+                    Double[]           points  = new Double[history.size() * 2];
+                    for (int i = 0; i < history.size(); i++) {
+                        points[2 * i] = i * step;
+                        points[2 * i + 1] = SPARKLINE_HEIGHT * (1 - history.getUtilization(i));
+                    }
+                    sparkline.getPoints().setAll(points);
+                    setGraphic(sparkline);
+                }
+            }
+        });
     }
 
     /**
@@ -74,5 +119,7 @@ public class AvailabilityController extends TrayViewLifecycleStrategy {
     @Override
     protected void unloadControllerResources() {
         // unbind action cells
+        StationContainer.getInstance().sampleCountProperty().removeListener(stationSampleListener);
+        EquipmentContainer.getInstance().sampleCountProperty().removeListener(equipSampleListener);
     }
 }
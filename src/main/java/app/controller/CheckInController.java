@@ -3,7 +3,9 @@ package app.controller;
 import app.container.SessionContainer;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.*;
 import org.apache.logging.log4j.LogManager;
@@ -49,4 +51,24 @@ public class CheckInController extends TrayViewLifecycleStrategy {
 
         ViewDirector.getViewDirector().handleCloseActiveView(this);
     }
+
+    @FXML
+    private void handleCloseOutAction(ActionEvent actionEvent) {
+        SessionContainer sessionContainer = SessionContainer.getInstance();
+        if (sessionContainer.getSessions().isEmpty()) return;
+
+        Alert closeOutAlert = new Alert(Alert.AlertType.CONFIRMATION);
+        closeOutAlert.setTitle("Close Out Confirmation");
+        closeOutAlert.setHeaderText("Check in every session?");
+        closeOutAlert.setContentText(String.format("All %d sessions will be checked in.",
+                                                   sessionContainer.getSessions().size()));
+        if (closeOutAlert.showAndWait().filter(ButtonType.OK::equals).isPresent()) {
+            try {
+                sessionContainer.checkInAllSessions();
+            } catch (RuntimeException e) {
+                LOGGER.catching(e);
+            }
+            ViewDirector.getViewDirector().handleCloseActiveView(this);
+        }
+    }
 }
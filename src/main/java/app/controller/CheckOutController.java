@@ -1,14 +1,18 @@
 package app.controller;
 
 import app.container.*;
-import app.model.Station;
+import app.container.AvailabilityContainer.WatcherView;
+import app.util.exception.RequestFailure;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.SpinnerValueFactory;
 import javafx.scene.control.TextField;
 import javafx.scene.control.cell.ComboBoxListCell;
 import javafx.scene.layout.BorderPane;
@@ -16,9 +20,10 @@ import javafx.scene.layout.Pane;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class CheckOutController extends TrayViewLifecycleStrategy {
     private static final Logger LOGGER = LogManager.getLogger(NoticeController.class);
@@ -26,19 +31,28 @@ public class CheckOutController extends TrayViewLifecycleStrategy {
     private static final ViewStrategy.TrayViewConfigStrategy VIEW_CONFIG_STRATEGY = ViewStrategy.PURE_TRAY_VIEWS.CHECK_OUT;
     private static final String                              SUBMIT_LABEL         = "submit";
     private static final String                              WAITLIST_LABEL       = "waitlist";
+    private static final int                                 SEARCH_LIMIT         = 50;
 
     @FXML private Pane                          rootNode;
     @FXML private TextField                     tfBannerID;
     @FXML private TextField                     tfName;
     @FXML private ComboBox<AvailabilityWatcher> cbStation;
+    @FXML private TextField                     tfEquipmentSearch;
     @FXML private ComboBox<AvailabilityWatcher> cbEquipment;
+    @FXML private Spinner<Integer>              spEquipmentQuantity;
     @FXML private Button                        submitButton;
+
+    private ObservableList<AvailabilityWatcher> stationEquipment = FXCollections.emptyObservableList();
+
+    // keeps the submit label current while the selected station or equipment changes availability
+    private AvailabilityContainer.Subscription stationSubscription;
+    private AvailabilityContainer.Subscription equipmentSubscription;
     //todo: add a 'waitlist estimate' label next to button
 
     @FXML
     private void initialize() {
         //get station list from station container and populate cbStation
-        cbStation.setItems(StationContainer.getInstance().getWatchers().sorted());
+        cbStation.setItems(StationContainer.getInstance().getView(WatcherView.BY_NAME));
         cbStation.setCellFactory(ComboBoxListCell.forListView());
 
         tfBannerID.textProperty().addListener((bean, oldV, newV) -> {
@@ -53,26 +67,24 @@ public class CheckOutController extends TrayViewLifecycleStrategy {
                                     cbStation.getSelectionModel().isEmpty() ||
                                     cbEquipment.getSelectionModel().isEmpty());
         });
+        tfEquipmentSearch.textProperty().addListener((bean, oldV, newV) -> filterEquipment(newV));
+        spEquipmentQuantity.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 1));
+        spEquipmentQuantity.valueProperty().addListener((bean, oldV, newV) -> updateSubmitLabel());
     }
 
     @FXML
     private void handleStationSelection(Event event) {
         //get equipable list from station's type
         if (event.getEventType().equals(ComboBox.ON_HIDDEN) && !cbStation.getSelectionModel().isEmpty()) {
-            List<AvailabilityWatcher> items = Station.class.cast(cbStation.getSelectionModel()
-                                                                          .getSelectedItem()
-                                                                          .getItems()
-                                                                          .get(0))
-                                                           .getEquipable()
-                                                           .stream()
-                                                           .map(eName -> EquipmentContainer.getInstance()
-                                                                                           .getWatcherByName(eName.get()))
-                                                           .collect(Collectors.toList());
             // todo - if station was a tv, filter to only those with a vgame prefix
-            items.sort(Comparator.comparing(AvailabilityWatcher::toString));
-            cbEquipment.setItems(FXCollections.observableList(items));
+            stationEquipment = EquipmentContainer.getInstance().getViewByStation(cbStation.getValue().getName());
+            tfEquipmentSearch.clear();
+            tfEquipmentSearch.setDisable(false);
+            cbEquipment.setItems(stationEquipment);
             cbEquipment.setDisable(false);
             cbEquipment.getSelectionModel().clearSelection(); // if we changed the station, clear selected eq
+            spEquipmentQuantity.setDisable(true);
+            unsubscribeFromSelection();
             // todo - clear any added eq nodes
 
             submitButton.setDisable(tfName.getText().isEmpty() ||
@@ -85,16 +97,12 @@ public class CheckOutController extends TrayViewLifecycleStrategy {
     private void handleEquipmentSelection(Event event) {
         //check watchers if station and equipment selected have at least one available each
         if (event.getEventType().equals(ComboBox.ON_HIDDEN) && !cbEquipment.getSelectionModel().isEmpty()) {
-            // todo - check if num requested is not above total num of items
-            if (StationContainer.getInstance().isAvailable(cbStation.getSelectionModel().getSelectedItem().getName()) &&
-                EquipmentContainer.getInstance()
-                                  .isAvailable(cbEquipment.getSelectionModel().getSelectedItem().getName())) {
-
-                submitButton.setText(SUBMIT_LABEL);
-            } else {
-                submitButton.setText(WAITLIST_LABEL);
-                // todo - spawn an est. wait time next to button
-            }
+            // the quantity can't go above the total number of items
+            int max = Math.max(1, cbEquipment.getSelectionModel().getSelectedItem().getTotalAmount());
+            spEquipmentQuantity.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(1, max));
+            spEquipmentQuantity.setDisable(false);
+            subscribeToSelection();
+            updateSubmitLabel();
             submitButton.setDisable(tfName.getText().isEmpty() ||
                                     tfBannerID.getText().isEmpty() ||
                                     cbStation.getSelectionModel().isEmpty());
@@ -103,16 +111,85 @@ public class CheckOutController extends TrayViewLifecycleStrategy {
         // todo - allow a spawned node to have a deletion button next to it
     }
 
+    /**
+     * Labels the submit button by whether the station and the chosen quantity of equipment are available right now, or
+     * if the request would be waitlisted.
+     */
+    private void updateSubmitLabel() {
+        if (cbStation.getSelectionModel().isEmpty() || cbEquipment.getSelectionModel().isEmpty()) return;
+        if (StationContainer.getInstance().isAvailable(cbStation.getSelectionModel().getSelectedItem().getName()) &&
+            EquipmentContainer.getInstance().isAvailable(cbEquipment.getSelectionModel().getSelectedItem().getName(),
+                                                         spEquipmentQuantity.getValue())) {
+
+            submitButton.setText(SUBMIT_LABEL);
+        } else {
+            submitButton.setText(WAITLIST_LABEL);
+            // todo - spawn an est. wait time next to button
+        }
+    }
+
+    /**
+     * Subscribes to the availability of the selected station and equipment, replacing any earlier subscription, so the
+     * submit label follows only those two and not every change in the venue.
+     */
+    private void subscribeToSelection() {
+        unsubscribeFromSelection();
+        Consumer<AvailabilityWatcher> callback = watcher -> updateSubmitLabel();
+        stationSubscription = StationContainer.getInstance()
+                                              .subscribe(Collections.singleton(cbStation.getValue().getName()),
+                                                         callback);
+        equipmentSubscription = EquipmentContainer.getInstance()
+                                                  .subscribe(Collections.singleton(cbEquipment.getValue().getName()),
+                                                             callback);
+    }
+
+    private void unsubscribeFromSelection() {
+        if (stationSubscription != null) stationSubscription.unsubscribe();
+        if (equipmentSubscription != null) equipmentSubscription.unsubscribe();
+        stationSubscription = null;
+        equipmentSubscription = null;
+    }
+
+    /**
+     * Narrows the equipment choices down to the equipment of the selected station that matches the search text. The
+     * matches come from the equipment container's search index and are ranked with available equipment first.
+     *
+     * @param query
+     *         the text typed into the equipment search field
+     */
+    private void filterEquipment(String query) {
+        if (query.trim().isEmpty()) {
+            cbEquipment.setItems(stationEquipment);
+            return;
+        }
+        CompatibilityMatrix compatibility = StationContainer.getInstance().getCompatibility();
+        String              stationName   = cbStation.getValue().getName();
+
+        List<AvailabilityWatcher> matches = EquipmentContainer.getInstance().search(
+                query, SEARCH_LIMIT, w -> compatibility.isCompatible(stationName, w.getName()));
+        cbEquipment.setItems(FXCollections.observableList(matches));
+        if (!matches.isEmpty()) cbEquipment.show();
+    }
+
     @FXML
     private void handleSubmitAction(ActionEvent actionEvent) {
         try {
             int    rBanner      = Integer.parseInt(tfBannerID.getText());
             String rName        = tfName.getText();
             String rStationName = cbStation.getValue().getName();
-            ObservableList<String> rEquipmentNameList = FXCollections.observableArrayList(cbEquipment.getSelectionModel()
-                                                                                                     .getSelectedItem()
-                                                                                                     .getName());
-            RequestContainer.getInstance().checkOutRequest(rBanner, rName, rStationName, rEquipmentNameList);
+            Map<String, Integer> rEquipmentQuantities = Collections.singletonMap(cbEquipment.getSelectionModel()
+                                                                                            .getSelectedItem()
+                                                                                            .getName(),
+                                                                                 spEquipmentQuantity.getValue());
+            RequestContainer.getInstance().checkOutRequest(rBanner, rName, rStationName, rEquipmentQuantities);
+        } catch (RequestFailure e) {
+            // keep the tray open so the request can be corrected
+            Alert requestRefusedAlert = new Alert(Alert.AlertType.ERROR);
+            requestRefusedAlert.setTitle("Request Refused Alert");
+            requestRefusedAlert.setHeaderText("Cannot check-out this request!");
+            requestRefusedAlert.setContentText(e.getMessage());
+            requestRefusedAlert.showAndWait();
+            return;
         } catch (RuntimeException e) {
             e.printStackTrace();
         }
@@ -137,6 +214,6 @@ public class CheckOutController extends TrayViewLifecycleStrategy {
 
     @Override
     protected void unloadControllerResources() {
-        // no op
+        unsubscribeFromSelection();
     }
 }
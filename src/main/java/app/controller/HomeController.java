@@ -5,8 +5,6 @@ import app.container.SessionContainer;
 import app.container.WaitlistContainer;
 import app.model.Session;
 import app.model.Waitlist;
-import javafx.collections.ListChangeListener;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -18,8 +16,6 @@ import org.apache.logging.log4j.Logger;
 public class HomeController {
     private static final Logger LOGGER = LogManager.getLogger(HomeController.class);
 
-    private final ListChangeListener<Waitlist> waitlistChangeListener = this::handleListChangeEvent_UpdateRefreshable;
-
     @FXML private TableView<Waitlist>          tvWaitlist;
     @FXML private TableView<Session>           tvSession;
     @FXML private TableColumn<Session, String> tcSessionBanner, tcSessionName, tcSessionStation, tcSessionEquip, tcSessionTimer;
@@ -29,9 +25,6 @@ public class HomeController {
 
     @FXML
     private void initialize() {
-        // add listener for session's refreshability to the waitlist container
-        WaitlistContainer.getInstance().addListChangeListener(waitlistChangeListener);
-
         // bind session properties to the columns for automatic updating
         tcWaitlistName.setCellValueFactory(e -> e.getValue().nameProperty());
         tcWaitlistTimer.setCellValueFactory(e -> e.getValue().timerStringProperty());
@@ -52,7 +45,12 @@ public class HomeController {
                 buttons.setMaxWidth(Double.MAX_VALUE);
                 acceptBtn.setOnAction(e -> {
                     /* todo: transaction for moving from waitlist to session */
-                    RequestContainer.getInstance().checkOutWaitlist(param.getTableView().getItems().get(getIndex()));
+                    try {
+                        RequestContainer.getInstance()
+                                        .checkOutWaitlist(param.getTableView().getItems().get(getIndex()));
+                    } catch (RuntimeException ex) {
+                        LOGGER.catching(ex);
+                    }
                 });
                 leaveBtn.setOnAction(e -> WaitlistContainer.getInstance()
                                                            .removeFromWaitlist(param.getTableView()
@@ -112,27 +110,4 @@ public class HomeController {
             LOGGER.catching(e);
         }
     }
-
-    /**
-     * Handler method that implements the {@link ListChangeListener}'s functional interface. Used as and treated as a
-     * valid ListChangeListener.
-     * <p>
-     * This Listener is notified if the observable list changed. The added or removed requests will update the
-     * refreshability of sessions that have a matching station.
-     * <p>
-     * Developers should not call this method, but rather supply this class's field ({@link #waitlistChangeListener})
-     * that contains this method's reference to a desired {@link ObservableList#addListener(ListChangeListener)}.
-     *
-     * @param change
-     *         the Change object that describes all the changes to the list since the last call.
-     * @param <R>
-     *         Type extends Waitlist
-     */
-    private <R extends Waitlist> void handleListChangeEvent_UpdateRefreshable(ListChangeListener.Change<R> change) {
-        while (change.next()) {
-            if (change.wasAdded() || change.wasRemoved()) {
-                SessionContainer.getInstance().requestRefreshableUpdate();
-            }
-        }
-    }
 }
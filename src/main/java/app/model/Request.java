@@ -1,43 +1,99 @@
 package app.model;
 
 import javafx.beans.property.*;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
 
 import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class Request implements RequestWrapper {
     // immutable properties
-    private final ReadOnlyIntegerProperty      banner;
-    private final ReadOnlyStringProperty       name;
-    private final ReadOnlyStringProperty       stationName;
-    private final ReadOnlyListProperty<String> equipmentNames;
-    private final ReadOnlyIntegerProperty      creationTime; // added for reporting purposes
+    private final ReadOnlyIntegerProperty              banner;
+    private final ReadOnlyStringProperty               name;
+    private final ReadOnlyStringProperty               stationName;
+    private final ReadOnlyListProperty<String>         equipmentNames;
+    private final ReadOnlyMapProperty<String, Integer> equipmentQuantities; // number of units wanted of each name
+    private final ReadOnlyIntegerProperty              creationTime; // added for reporting purposes
 
     // properties formatted as string (for external class listeners)
     private final transient ReadOnlyStringProperty equipmentString;
 
-    private Request(Integer banner, String name, String stationName, ObservableList<String> equipmentNames) {
+    private Request(Integer banner, String name, String stationName, Map<String, Integer> equipmentQuantities) {
         this.banner = new ReadOnlyIntegerWrapper(this, "banner", banner);
         this.name = new ReadOnlyStringWrapper(this, "name", name);
         this.stationName = new ReadOnlyStringWrapper(this, "stationName", stationName);
-        this.equipmentNames = new ReadOnlyListWrapper<>(this, "equipmentNames", equipmentNames);
+        this.equipmentNames = new ReadOnlyListWrapper<>(this, "equipmentNames", FXCollections.observableArrayList(
+                equipmentQuantities.keySet()));
+        this.equipmentQuantities = new ReadOnlyMapWrapper<>(this,
+                                                            "equipmentQuantities",
+                                                            FXCollections.unmodifiableObservableMap(
+                                                                    FXCollections.observableMap(equipmentQuantities)));
         this.creationTime = new ReadOnlyIntegerWrapper(this, "timer", LocalTime.now().toSecondOfDay());
 
         // following values to be adding in the init method
         this.equipmentString = new SimpleStringProperty(this, "equipmentString", createEquipmentString());
     }
 
+    /**
+     * Initializer method for a request that wants one unit of each equipment name. A name listed more than once wants
+     * that many units.
+     *
+     * @param banner
+     *         the banner id of the client
+     * @param name
+     *         the name of the client
+     * @param stationName
+     *         the name of the station
+     * @param equipment
+     *         the names of the equipment
+     * @return a new request
+     */
     public static Request initRequest(Integer banner,
                                       String name,
                                       String stationName,
                                       ObservableList<String> equipment) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        equipment.forEach(e -> quantities.merge(e, 1, Integer::sum));
+        return new Request(banner, name, stationName, quantities);
+    }
 
-        return new Request(banner, name, stationName, equipment);
+    /**
+     * Initializer method for a request that wants a number of units of each equipment name, such as four controllers
+     * for a four player session.
+     *
+     * @param banner
+     *         the banner id of the client
+     * @param name
+     *         the name of the client
+     * @param stationName
+     *         the name of the station
+     * @param equipmentQuantities
+     *         the names of the equipment mapped to the number of units wanted of each
+     * @return a new request
+     *
+     * @throws IllegalArgumentException
+     *         if a quantity is less than one
+     */
+    public static Request initRequest(Integer banner,
+                                      String name,
+                                      String stationName,
+                                      Map<String, Integer> equipmentQuantities) throws IllegalArgumentException {
+        equipmentQuantities.forEach((e, quantity) -> {
+            if (quantity < 1) throw new IllegalArgumentException(String.format("Quantity of %s is %d", e, quantity));
+        });
+        return new Request(banner, name, stationName, new LinkedHashMap<>(equipmentQuantities));
     }
 
     private String createEquipmentString() {
         StringBuilder sb = new StringBuilder();
-        for (String e : equipmentNames) { sb.append(e).append("\n"); }
+        for (String e : equipmentNames) {
+            sb.append(e);
+            if (getEquipmentQuantity(e) > 1) sb.append(" x").append(getEquipmentQuantity(e));
+            sb.append("\n");
+        }
         return sb.toString();
     }
 
@@ -81,6 +137,16 @@ public class Request implements RequestWrapper {
         return equipmentNames;
     }
 
+    @Override
+    public ObservableMap<String, Integer> getEquipmentQuantities() {
+        return equipmentQuantities.get();
+    }
+
+    @Override
+    public ReadOnlyMapProperty<String, Integer> equipmentQuantitiesProperty() {
+        return equipmentQuantities;
+    }
+
     @Override
     public int getCreationTime() {
         return creationTime.get();
@@ -2,6 +2,7 @@ package app.model;
 
 import javafx.beans.property.*;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
 
 public interface RequestWrapper {
     int getBanner();
@@ -20,6 +21,19 @@ public interface RequestWrapper {
 
     ReadOnlyListProperty<String> equipmentNamesProperty();
 
+    ObservableMap<String, Integer> getEquipmentQuantities();
+
+    ReadOnlyMapProperty<String, Integer> equipmentQuantitiesProperty();
+
+    /**
+     * @param equipmentName
+     *         the name of an equipment
+     * @return the number of units wanted of the equipment, 0 if it isn't part of the request
+     */
+    default int getEquipmentQuantity(String equipmentName) {
+        return getEquipmentQuantities().getOrDefault(equipmentName, 0);
+    }
+
     int getCreationTime();
 
     ReadOnlyIntegerProperty creationTimeProperty();
@@ -2,6 +2,7 @@ package app.model;
 
 import javafx.beans.property.*;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
 
 import java.time.Duration;
 import java.time.LocalTime;
@@ -97,6 +98,16 @@ public class Session extends Timer implements RequestWrapper {
         return request.get().equipmentNamesProperty();
     }
 
+    @Override
+    public ObservableMap<String, Integer> getEquipmentQuantities() {
+        return request.get().getEquipmentQuantities();
+    }
+
+    @Override
+    public ReadOnlyMapProperty<String, Integer> equipmentQuantitiesProperty() {
+        return request.get().equipmentQuantitiesProperty();
+    }
+
     @Override
     public int getCreationTime() {
         return request.get().getCreationTime();
@@ -151,7 +162,7 @@ public class Session extends Timer implements RequestWrapper {
     }
 
 	@Override
-	protected String getTimeUpNoticeString() {
+	public String getTimeUpNoticeString() {
 		return getName() + "'s time is up at " + getStationName();
 	}
 }
@@ -1,13 +1,8 @@
 package app.model;
 
-import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
-
 /**
  * a station model. utilizes `Property` classes in order to allow other objects to listen for value changes. a station
  * represents a workable station that can be used during a checkout request. a station may also have equipment groups to
@@ -15,45 +10,50 @@ import java.util.stream.Collectors;
  */
 public class Station extends Requestable {
     // the list of equipment that can be equipped by this station. e.g. "pool", "video game"
-    private ListProperty<StringProperty> equipable;
+    // shared by every unit of the same station, as it is the same for all of them
+    private final ObservableList<String> equipable;
 
     // **************************** constructors ************************************
 
-    private Station(String name) {
+    private Station(String name, ObservableList<String> equipable) {
         super(name);
-        this.equipable = new SimpleListProperty<>(this, "equipable", FXCollections.observableArrayList());
-    }
-
-    private Station(String name, ObservableList<StringProperty> equipmentNames, Boolean available) {
-        this(name);
-        this.equipable = new SimpleListProperty<>(this, "equipable", equipmentNames);
+        this.equipable = equipable;
     }
 
     // **************************** getters, setters *********************************
 
     ////// equipment groups property
 
-    public ListProperty<StringProperty> equipableProperty() {
+    /**
+     * @return an unmodifiable list of the names of the equipment that can be used at this station
+     *
+     * @see app.container.CompatibilityMatrix#getEquipmentFor(String)
+     */
+    public ObservableList<String> getEquipable() {
         return equipable;
     }
 
-    public ObservableList<StringProperty> getEquipable() {
-        return equipable.get();
-    }
-
-    public void setEquipable(ObservableList<StringProperty> equipable) {
-        this.equipable.set(equipable);
-    }
-
     // ******************************* method factories ******************************
 
     public static Station stationFactory(String stationName) {
-        return new Station(stationName);
+        return new Station(stationName, FXCollections.emptyObservableList());
     }
 
     public static Station stationFactory(String stationName, String... equipmentNames) {
-        List<String>         names  = Arrays.asList(equipmentNames);
-        List<StringProperty> eNames = names.stream().map(SimpleStringProperty::new).collect(Collectors.toList());
-        return new Station(stationName, FXCollections.observableArrayList(eNames), true);
+        return new Station(stationName,
+                           FXCollections.unmodifiableObservableList(FXCollections.observableArrayList(equipmentNames)));
+    }
+
+    /**
+     * Creates a station that shares its list of equipment names with the other units of the same station.
+     *
+     * @param stationName
+     *         the name of the station
+     * @param equipable
+     *         the unmodifiable list of the names of the equipment that can be used at the station
+     * @return a new station
+     */
+    public static Station stationFactory(String stationName, ObservableList<String> equipable) {
+        return new Station(stationName, equipable);
     }
 }
@@ -9,10 +9,6 @@ import javafx.event.ActionEvent;
 import java.time.Duration;
 import java.time.LocalTime;
 
-import app.container.NoticeContainer;
-import app.container.SessionContainer;
-import app.container.WaitlistContainer;
-
 abstract class Timer {
     public static final  String   TIMER_IS_ZERO_MSG   = "done";
     private static final String   TIMER_FORMAT        = "%s";
@@ -32,13 +28,9 @@ abstract class Timer {
     protected String createTimerString() {
         LocalTime sessionEndTime = LocalTime.ofSecondOfDay(timerProperty().longValue());
         LocalTime currentTime    = LocalTime.now();
+        // the time up notice itself is sent once by the containers' deadline scheduler
         if(currentTime.isAfter(sessionEndTime)) {
-        	if(this instanceof Session && SessionContainer.getInstance().getSessions().contains((Session)this))      		
-        		NoticeContainer.getInstance().createNotice(getTimeUpNoticeString());
-        	else if(this instanceof Waitlist && WaitlistContainer.getInstance().getWaitListedRequests().contains((Waitlist)this))
-        		NoticeContainer.getInstance().createNotice(getTimeUpNoticeString());
-
-        	return TIMER_IS_ZERO_MSG;       	 
+        	return TIMER_IS_ZERO_MSG;
         }else
         	return String.format(TIMER_FORMAT, Duration.between(currentTime, sessionEndTime).toString());
         // todo: once done testing, change to `toMinutes()` and correct Timer_Format
@@ -50,7 +42,10 @@ abstract class Timer {
         return clock;
     }
 	
-	protected abstract String getTimeUpNoticeString();
+	/**
+	 * @return the notice sent once when the timer runs out
+	 */
+	public abstract String getTimeUpNoticeString();
 
     public abstract IntegerProperty timerProperty();
 
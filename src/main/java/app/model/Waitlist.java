@@ -2,6 +2,7 @@ package app.model;
 
 import javafx.beans.property.*;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
 
 /**
  * A waitlist model that wraps a request model in order to provide waitlist functionality. A waitlist model is meant to
@@ -82,6 +83,16 @@ public class Waitlist extends Timer implements RequestWrapper {
         return request.get().equipmentNamesProperty();
     }
 
+    @Override
+    public ObservableMap<String, Integer> getEquipmentQuantities() {
+        return request.get().getEquipmentQuantities();
+    }
+
+    @Override
+    public ReadOnlyMapProperty<String, Integer> equipmentQuantitiesProperty() {
+        return request.get().equipmentQuantitiesProperty();
+    }
+
     @Override
     public int getCreationTime() {
         return request.get().getCreationTime();
@@ -165,7 +176,7 @@ public class Waitlist extends Timer implements RequestWrapper {
     }
     
     @Override
-	protected String getTimeUpNoticeString() {
+	public String getTimeUpNoticeString() {
 		return getName() + " is up next at the " + getStationName();
 	}
 }
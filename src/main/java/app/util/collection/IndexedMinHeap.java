@@ -0,0 +1,208 @@
+package app.util.collection;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * A binary min-heap of elements ordered by an integer key, such as an end time given in seconds of the day. The heap
+ * remembers where each element is, so an element's key can be changed, or the element removed, in O(log n) without
+ * searching the heap.
+ * <p>
+ * Elements are tracked by identity; an element can only be in the heap once.
+ *
+ * @param <T>
+ *         the type of element
+ */
+public class IndexedMinHeap<T> {
+    private final List<T>         elements  = new ArrayList<>();
+    private final Map<T, Integer> positions = new IdentityHashMap<>();
+    private       int[]           keys      = new int[8];
+
+    /**
+     * Adds an element with the given key, or changes its key if the element is already in the heap.
+     *
+     * @param element
+     *         the element to add
+     * @param key
+     *         the key to order the element by
+     */
+    public void put(T element, int key) {
+        Integer position = positions.get(element);
+        if (position != null) {
+            int oldKey = keys[position];
+            keys[position] = key;
+            if (key < oldKey) siftUp(position);
+            else siftDown(position);
+            return;
+        }
+
+        int last = elements.size();
+        if (last == keys.length) keys = Arrays.copyOf(keys, last * 2);
+        elements.add(element);
+        keys[last] = key;
+        positions.put(element, last);
+        siftUp(last);
+    }
+
+    /**
+     * Removes an element from the heap.
+     *
+     * @param element
+     *         the element to remove
+     * @return true if the element was in the heap
+     */
+    public boolean remove(T element) {
+        Integer position = positions.remove(element);
+        if (position == null) return false;
+
+        int last = elements.size() - 1;
+        T   moved = elements.remove(last);
+        if (position != last) {
+            int movedKey = keys[last];
+            int oldKey   = keys[position];
+            elements.set(position, moved);
+            keys[position] = movedKey;
+            positions.put(moved, position);
+            if (movedKey < oldKey) siftUp(position);
+            else siftDown(position);
+        }
+        return true;
+    }
+
+    /**
+     * @param element
+     *         the element to test
+     * @return true if the element is in the heap
+     */
+    public boolean contains(T element) {
+        return positions.containsKey(element);
+    }
+
+    /**
+     * @return the element with the smallest key, or null if the heap is empty
+     */
+    public T peek() {
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    /**
+     * @return the smallest key
+     *
+     * @throws NoSuchElementException
+     *         if the heap is empty
+     */
+    public int peekKey() throws NoSuchElementException {
+        if (elements.isEmpty()) throw new NoSuchElementException();
+        return keys[0];
+    }
+
+    /**
+     * Removes and returns the element with the smallest key.
+     *
+     * @return the element with the smallest key, or null if the heap is empty
+     */
+    public T poll() {
+        T head = peek();
+        if (head != null) remove(head);
+        return head;
+    }
+
+    /**
+     * Finds the n'th smallest key without changing the heap. Only the part of the heap that can hold the n'th smallest
+     * key is visited, so the cost is O(n log n) in the rank asked for and does not depend on the size of the heap.
+     *
+     * @param n
+     *         the zero-based rank of the key, 0 being the smallest
+     * @return the n'th smallest key
+     *
+     * @throws NoSuchElementException
+     *         if the heap holds n or fewer elements
+     */
+    public int kthSmallestKey(int n) throws NoSuchElementException {
+        if (n >= elements.size()) throw new NoSuchElementException(String.valueOf(n));
+        return kthSmallestKey(n, element -> 1);
+    }
+
+    /**
+     * Finds the n'th smallest key when each element counts as a number of copies of its key, such as a session that
+     * holds several units of the same equipment. Only the elements with keys up to the answer are visited.
+     *
+     * @param n
+     *         the zero-based rank of the key, counting every copy, 0 being the smallest
+     * @param weight
+     *         the number of copies an element counts as
+     * @return the n'th smallest key
+     *
+     * @throws NoSuchElementException
+     *         if the elements count as n or fewer copies in total
+     */
+    public int kthSmallestKey(int n, ToIntFunction<? super T> weight) throws NoSuchElementException {
+        if (n < 0 || elements.isEmpty()) throw new NoSuchElementException(String.valueOf(n));
+
+        // frontier of heap positions, ordered by their key; a position's children can only be larger than it
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(Comparator.comparingInt(p -> keys[p]));
+        frontier.add(0);
+        long seen = 0;
+        while (!frontier.isEmpty()) {
+            int position = frontier.poll();
+            seen += weight.applyAsInt(elements.get(position));
+            if (seen > n) return keys[position];
+
+            int child = 2 * position + 1;
+            if (child < elements.size()) frontier.add(child);
+            if (child + 1 < elements.size()) frontier.add(child + 1);
+        }
+        throw new NoSuchElementException(String.valueOf(n));
+    }
+
+    /**
+     * @return the number of elements in the heap
+     */
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * @return true if the heap has no elements
+     */
+    public boolean isEmpty() {
+        return elements.isEmpty();
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (keys[parent] <= keys[position]) return;
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        int size = elements.size();
+        while (true) {
+            int smallest = position;
+            int left     = 2 * position + 1;
+            int right    = left + 1;
+            if (left < size && keys[left] < keys[smallest]) smallest = left;
+            if (right < size && keys[right] < keys[smallest]) smallest = right;
+            if (smallest == position) return;
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        T   elementA = elements.get(a);
+        T   elementB = elements.get(b);
+        int keyA     = keys[a];
+        elements.set(a, elementB);
+        elements.set(b, elementA);
+        keys[a] = keys[b];
+        keys[b] = keyA;
+        positions.put(elementB, a);
+        positions.put(elementA, b);
+    }
+}
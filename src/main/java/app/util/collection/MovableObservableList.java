@@ -0,0 +1,71 @@
+package app.util.collection;
+
+import javafx.collections.ModifiableObservableListBase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An observable array list that can move a single element to another position. A move is reported to listeners as one
+ * permutation of the range between the two positions, instead of a removal followed by an addition or a permutation
+ * of the whole list, so listeners that only care about added and removed elements can skip it.
+ *
+ * @param <E>
+ *         the type of element
+ */
+public class MovableObservableList<E> extends ModifiableObservableListBase<E> {
+    private final List<E> elements = new ArrayList<>();
+
+    /**
+     * Moves an element to another position, shifting the elements in between by one.
+     *
+     * @param from
+     *         the current position of the element
+     * @param to
+     *         the position the element should end up at
+     * @throws IndexOutOfBoundsException
+     *         if either position is out of range
+     */
+    public void move(int from, int to) throws IndexOutOfBoundsException {
+        if (from < 0 || from >= size()) throw new IndexOutOfBoundsException(String.valueOf(from));
+        if (to < 0 || to >= size()) throw new IndexOutOfBoundsException(String.valueOf(to));
+        if (from == to) return;
+
+        int   low  = Math.min(from, to);
+        int   high = Math.max(from, to);
+        int[] perm = new int[high - low + 1]; // the new position of each element of the range, by its old position
+        for (int i = low; i <= high; i++) {
+            perm[i - low] = (i == from) ? to : (from < to) ? i - 1 : i + 1;
+        }
+
+        beginChange();
+        elements.add(to, elements.remove(from));
+        nextPermutation(low, high + 1, perm);
+        endChange();
+    }
+
+    @Override
+    public E get(int index) {
+        return elements.get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    protected void doAdd(int index, E element) {
+        elements.add(index, element);
+    }
+
+    @Override
+    protected E doSet(int index, E element) {
+        return elements.set(index, element);
+    }
+
+    @Override
+    protected E doRemove(int index) {
+        return elements.remove(index);
+    }
+}
@@ -0,0 +1,154 @@
+package app.util.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel for scheduling many timeouts from a single clock. The wheel is a ring of slots, one per tick;
+ * a timeout is put into the slot of the tick it is due on, and each call to {@link #tick(Consumer)} only looks at the
+ * timeouts of the one slot it lands on. Scheduling and cancelling a timeout are O(1), and a tick costs O(1) per
+ * timeout in its slot, no matter how many timeouts are outstanding.
+ * <p>
+ * A timeout due further away than one turn of the wheel waits in its slot for the extra turns to pass. The wheel does
+ * not keep time by itself; whoever owns it decides how long a tick is and calls {@link #tick(Consumer)} once per tick.
+ *
+ * @param <T>
+ *         the type of element a timeout is scheduled for
+ */
+public class TimingWheel<T> {
+    private final Timeout<T>[] slots; // the head of each slot's linked list of timeouts, null when empty
+    private final int          mask;
+    private       long         currentTick;
+    private       int          size;
+
+    /**
+     * A handle of a scheduled element, used to cancel it.
+     *
+     * @param <T>
+     *         the type of element
+     */
+    public static final class Timeout<T> {
+        private final T          element;
+        private final int        slot;
+        private       long       rounds; // turns of the wheel left before the timeout is due
+        private       boolean    scheduled;
+        private       Timeout<T> prev;
+        private       Timeout<T> next;
+
+        private Timeout(T element, int slot, long rounds) {
+            this.element = element;
+            this.slot = slot;
+            this.rounds = rounds;
+            this.scheduled = true;
+        }
+
+        public T getElement() {
+            return element;
+        }
+
+        /**
+         * @return true if the timeout is still waiting to be due, false once it has expired or was cancelled
+         */
+        public boolean isScheduled() {
+            return scheduled;
+        }
+    }
+
+    /**
+     * @param slotCount
+     *         the number of ticks in one turn of the wheel, rounded up to a power of two. a turn should cover the
+     *         usual timeout so that most timeouts are due within their first turn.
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(int slotCount) {
+        if (slotCount <= 0) throw new IllegalArgumentException("slotCount must be positive: " + slotCount);
+        int length = Integer.highestOneBit(slotCount);
+        if (length < slotCount) length <<= 1;
+        this.slots = (Timeout<T>[]) new Timeout<?>[length];
+        this.mask = length - 1;
+    }
+
+    /**
+     * Schedules an element to be due after a number of ticks.
+     *
+     * @param element
+     *         the element to schedule
+     * @param delay
+     *         the number of ticks until the element is due. anything less than 1 is due on the next tick.
+     * @return the handle of the timeout, used to cancel it
+     */
+    public Timeout<T> schedule(T element, long delay) {
+        delay = Math.max(1, delay);
+        int        slot    = (int) ((currentTick + delay) & mask);
+        Timeout<T> timeout = new Timeout<>(element, slot, (delay - 1) / slots.length);
+
+        timeout.next = slots[slot];
+        if (timeout.next != null) timeout.next.prev = timeout;
+        slots[slot] = timeout;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a timeout so it never becomes due.
+     *
+     * @param timeout
+     *         the handle given by {@link #schedule(Object, long)}
+     * @return true if the timeout was cancelled, false if it had already expired or been cancelled
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (!timeout.scheduled) return false;
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Advances the wheel by one tick and hands every element that became due to the consumer. The due timeouts are all
+     * taken off the wheel before the first one is handed over, so the consumer may schedule or cancel freely.
+     *
+     * @param onExpire
+     *         receives each element that became due
+     */
+    public void tick(Consumer<? super T> onExpire) {
+        currentTick++;
+        List<T> expired = new ArrayList<>();
+        for (Timeout<T> timeout = slots[(int) (currentTick & mask)]; timeout != null; ) {
+            Timeout<T> next = timeout.next;
+            if (timeout.rounds == 0) {
+                unlink(timeout);
+                expired.add(timeout.element);
+            } else {
+                timeout.rounds--;
+            }
+            timeout = next;
+        }
+        expired.forEach(onExpire);
+    }
+
+    /**
+     * @return the number of timeouts that are scheduled
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if no timeout is scheduled
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /* ****************************************** INTERNAL METHODS ************************************************* */
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) timeout.prev.next = timeout.next;
+        else slots[timeout.slot] = timeout.next;
+        if (timeout.next != null) timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.scheduled = false;
+        size--;
+    }
+}
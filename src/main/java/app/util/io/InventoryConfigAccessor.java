@@ -9,7 +9,8 @@ import java.io.File;
 import java.util.*;
 
 public class InventoryConfigAccessor {
-    public static final char PREFIX_DELIM = '_';
+    public static final char PREFIX_DELIM    = '_';
+    public static final char ACCESSORY_DELIM = '-'; // marks an accessory of a console within a prefix, e.g. "ps4-e"
 
     private final Map<String, Set<String>> consoleMap;
     private final Map<String, Set<String>> stationMap;
@@ -48,7 +49,7 @@ public class InventoryConfigAccessor {
                 int equipmentTotal = (eEquipment.getAttribute("total").matches("\\d+"))
                                      ? Integer.parseInt(eEquipment.getAttribute("total"))
                                      : 0;
-                String consolePrepend = equipmentName.substring(0, 3);
+                String consolePrepend = getConsoleKey(equipmentName);
                 if (consoleMap.containsKey(consolePrepend)) consoleMap.get(consolePrepend).add(equipmentName);
                 equipmentSet.add(equipmentName);
                 totalMap.put(equipmentName, equipmentTotal);
@@ -88,6 +89,33 @@ public class InventoryConfigAccessor {
     }
     // todo: write/update stations and equipment to config
 
+    /**
+     * Gets the console prefix of a name, which is the part before the {@link #PREFIX_DELIM}. e.g. "ps4" of "ps4_Doom".
+     *
+     * @param name
+     *         the name of a station or equipment
+     * @return the prefix of the name, or an empty string if the name has no prefix
+     */
+    public static String getPrefix(String name) {
+        int delimIndex = name.indexOf(PREFIX_DELIM);
+        return (delimIndex < 0) ? "" : name.substring(0, delimIndex);
+    }
+
+    /**
+     * Gets the console a name belongs to, which is its prefix up to any {@link #ACCESSORY_DELIM}. Accessories share the
+     * console of their titles, e.g. "ps4" of both "ps4_Doom" and "ps4-e_PS4 Controller". This is what a consolable's
+     * prepend is matched against.
+     *
+     * @param name
+     *         the name of a station or equipment
+     * @return the console key of the name, or an empty string if the name has no prefix
+     */
+    public static String getConsoleKey(String name) {
+        String prefix     = getPrefix(name);
+        int    delimIndex = prefix.indexOf(ACCESSORY_DELIM);
+        return (delimIndex < 0) ? prefix : prefix.substring(0, delimIndex);
+    }
+
 
     public Map<String, Set<String>> getConsoleMap() {
         return consoleMap;